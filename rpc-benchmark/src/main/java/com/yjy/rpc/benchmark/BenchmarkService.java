@@ -0,0 +1,17 @@
+package com.yjy.rpc.benchmark;
+
+import java.util.List;
+
+/**
+ * 基准测试使用的服务接口，JSON 序列化会根据接口方法签名解析参数的泛型类型，因此请求必须对应真实存在的接口方法
+ */
+public interface BenchmarkService {
+
+    String sayHello(String name, int age);
+
+    Order saveOrder(Order order);
+
+    List<Order> batchSave(List<Order> orders);
+
+    byte[] upload(String fileName, byte[] content);
+}
@@ -0,0 +1,115 @@
+package com.yjy.rpc.benchmark;
+
+import com.yjy.rpc.core.codec.CodecOptions;
+import com.yjy.rpc.core.codec.RpcFrameDecoder;
+import com.yjy.rpc.core.codec.SharableRpcMessageCodec;
+import com.yjy.rpc.core.protocol.MessageHeader;
+import com.yjy.rpc.core.protocol.RpcMessage;
+import com.yjy.rpc.core.protocol.constant.ProtocolConstants;
+import com.yjy.rpc.core.protocol.enums.CompressionType;
+import com.yjy.rpc.core.protocol.enums.MessageType;
+import com.yjy.rpc.core.protocol.enums.SerializationType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SharableRpcMessageCodec} 编码、解码的完整开销，通过 {@link EmbeddedChannel} 驱动真实的 pipeline
+ * （帧解码器 + 编解码器），包含协议头读写、ByteBuf 分配与释放、压缩以及序列化本身。
+ * <p>
+ * 运行方式：{@code java -jar rpc-benchmark/target/benchmarks.jar CodecBenchmark -prof gc}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"JSON", "HESSIAN", "KRYO", "PROTOSTUFF"})
+    private SerializationType serializer;
+
+    @Param({"SMALL", "NESTED", "LARGE_LIST", "BLOB"})
+    private Payload payload;
+
+    @Param({"NONE", "DEFLATE", "SNAPPY"})
+    private CompressionType compression;
+
+    private EmbeddedChannel channel;
+
+    private RpcMessage message;
+
+    /**
+     * 预先编码好的完整帧，用于单独测量解码
+     */
+    private ByteBuf frame;
+
+    @Setup
+    public void setup() {
+        CodecOptions options = CodecOptions.builder().compressType(compression).build();
+        channel = new EmbeddedChannel(new RpcFrameDecoder(options), new SharableRpcMessageCodec(options));
+        // 版本 1 的帧不压缩，使用版本 2 的协议头才能比较各压缩算法
+        MessageHeader header = MessageHeader.build(serializer.name(), compression.name(), ProtocolConstants.VERSION_2);
+        header.setMessageType(MessageType.REQUEST.getType());
+        message = new RpcMessage();
+        message.setHeader(header);
+        message.setBody(payload.request());
+        channel.writeOutbound(message);
+        // 超过分片大小的消息会被编码为多个帧，合并为一个连续的字节流
+        frame = Unpooled.buffer();
+        ByteBuf buf;
+        while ((buf = channel.readOutbound()) != null) {
+            frame.writeBytes(buf);
+            buf.release();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        frame.release();
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int encode() {
+        channel.writeOutbound(message);
+        int length = 0;
+        ByteBuf buf;
+        while ((buf = channel.readOutbound()) != null) {
+            length += buf.readableBytes();
+            buf.release();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public Object decode() {
+        channel.writeInbound(frame.retainedDuplicate());
+        return channel.readInbound();
+    }
+
+    @Benchmark
+    public Object roundTrip() {
+        channel.writeOutbound(message);
+        ByteBuf buf;
+        while ((buf = channel.readOutbound()) != null) {
+            channel.writeInbound(buf);
+        }
+        return channel.readInbound();
+    }
+}
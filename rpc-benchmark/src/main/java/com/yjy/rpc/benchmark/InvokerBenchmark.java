@@ -0,0 +1,113 @@
+package com.yjy.rpc.benchmark;
+
+import com.yjy.rpc.server.handler.RpcRequestHandler;
+import com.yjy.rpc.server.handler.ServiceMethod;
+import com.yjy.rpc.server.serviceCache.LocalServiceCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务端方法调用性能对比：每次查找方法再反射调用、缓存 Method 反射调用、注册表查找 + 方法句柄调用。
+ * <p>
+ * 运行方式：{@code java -jar rpc-benchmark/target/benchmarks.jar InvokerBenchmark -prof gc}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvokerBenchmark {
+
+    private static final String SERVICE_NAME = BenchmarkService.class.getName() + "-1.0";
+
+    private static final Class<?>[] PARAMETER_TYPES = {String.class, int.class};
+
+    private final Object[] args = {"benchmark", 18};
+
+    private BenchmarkService service;
+
+    private Method method;
+
+    private RpcRequestHandler handler;
+
+    @Setup
+    public void setup() throws Exception {
+        service = new BenchmarkServiceImpl();
+        LocalServiceCache.addService(SERVICE_NAME, service);
+        method = service.getClass().getMethod("sayHello", PARAMETER_TYPES);
+        handler = new RpcRequestHandler();
+    }
+
+    @TearDown
+    public void tearDown() {
+        LocalServiceCache.removeService(SERVICE_NAME);
+    }
+
+    /**
+     * 原有实现：每次请求都从本地缓存取服务，再 getMethod 查找方法并反射调用
+     */
+    @Benchmark
+    public Object lookupAndReflect() throws Exception {
+        Object target = LocalServiceCache.getService(SERVICE_NAME);
+        return target.getClass().getMethod("sayHello", PARAMETER_TYPES).invoke(target, args);
+    }
+
+    @Benchmark
+    public Object cachedReflect() throws Exception {
+        return method.invoke(service, args);
+    }
+
+    /**
+     * 当前实现：注册表中查找预先绑定的方法句柄并调用
+     */
+    @Benchmark
+    public Object registryMethodHandle() throws Exception {
+        ServiceMethod serviceMethod = handler.resolve(SERVICE_NAME, "sayHello", PARAMETER_TYPES);
+        return serviceMethod.invoke(args);
+    }
+
+    @Benchmark
+    public String direct() {
+        return service.sayHello((String) args[0], (Integer) args[1]);
+    }
+
+    /**
+     * 服务实现，与真实服务一样是 public 类
+     */
+    public static class BenchmarkServiceImpl implements BenchmarkService {
+
+        @Override
+        public String sayHello(String name, int age) {
+            return name;
+        }
+
+        @Override
+        public Order saveOrder(Order order) {
+            return order;
+        }
+
+        @Override
+        public List<Order> batchSave(List<Order> orders) {
+            return orders;
+        }
+
+        @Override
+        public byte[] upload(String fileName, byte[] content) {
+            return content;
+        }
+    }
+}
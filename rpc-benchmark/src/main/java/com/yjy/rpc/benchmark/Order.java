@@ -0,0 +1,50 @@
+package com.yjy.rpc.benchmark;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 嵌套结构的业务 DTO
+ */
+@Data
+public class Order implements Serializable {
+
+    private long id;
+
+    private String customer;
+
+    private long createTime;
+
+    private Address address;
+
+    private List<OrderItem> items;
+
+    private Map<String, String> tags;
+
+    @Data
+    public static class Address implements Serializable {
+
+        private String province;
+
+        private String city;
+
+        private String street;
+
+        private String zipCode;
+    }
+
+    @Data
+    public static class OrderItem implements Serializable {
+
+        private String sku;
+
+        private String title;
+
+        private int quantity;
+
+        private double price;
+    }
+}
@@ -0,0 +1,141 @@
+package com.yjy.rpc.benchmark;
+
+import com.yjy.rpc.core.common.RpcRequest;
+import com.yjy.rpc.core.common.RpcResponse;
+import com.yjy.rpc.core.util.ServiceUtil;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 基准测试的消息形态，对应 {@link BenchmarkService} 中的一个方法调用：
+ * <ul>
+ *     <li>SMALL：少量基本类型参数</li>
+ *     <li>NESTED：一个嵌套的业务 DTO</li>
+ *     <li>LARGE_LIST：包含 1000 个 DTO 的列表</li>
+ *     <li>BLOB：64KB 的字节数组</li>
+ * </ul>
+ */
+public enum Payload {
+
+    SMALL {
+        @Override
+        public RpcRequest request() {
+            return newRequest("sayHello", new Class<?>[]{String.class, int.class}, new Object[]{"rpc", 18});
+        }
+
+        @Override
+        public RpcResponse response() {
+            return newResponse("hello, rpc");
+        }
+    },
+
+    NESTED {
+        @Override
+        public RpcRequest request() {
+            return newRequest("saveOrder", new Class<?>[]{Order.class}, new Object[]{order(1)});
+        }
+
+        @Override
+        public RpcResponse response() {
+            return newResponse(order(1));
+        }
+    },
+
+    LARGE_LIST {
+        @Override
+        public RpcRequest request() {
+            return newRequest("batchSave", new Class<?>[]{List.class}, new Object[]{orders()});
+        }
+
+        @Override
+        public RpcResponse response() {
+            return newResponse(orders());
+        }
+    },
+
+    BLOB {
+        @Override
+        public RpcRequest request() {
+            return newRequest("upload", new Class<?>[]{String.class, byte[].class}, new Object[]{"report.xlsx", blob()});
+        }
+
+        @Override
+        public RpcResponse response() {
+            return newResponse(blob());
+        }
+    };
+
+    private static final String SERVICE_NAME = ServiceUtil.serviceKey(BenchmarkService.class.getName(), "1.0");
+
+    private static final int LIST_SIZE = 1000;
+
+    private static final int BLOB_SIZE = 64 * 1024;
+
+    public abstract RpcRequest request();
+
+    public abstract RpcResponse response();
+
+    private static RpcRequest newRequest(String method, Class<?>[] parameterTypes, Object[] parameterValues) {
+        RpcRequest request = new RpcRequest();
+        request.setServiceName(SERVICE_NAME);
+        request.setMethod(method);
+        request.setParameterTypes(parameterTypes);
+        request.setParameterValues(parameterValues);
+        return request;
+    }
+
+    private static RpcResponse newResponse(Object returnValue) {
+        RpcResponse response = new RpcResponse();
+        response.setReturnValue(returnValue);
+        return response;
+    }
+
+    private static Order order(long id) {
+        Order.Address address = new Order.Address();
+        address.setProvince("Zhejiang");
+        address.setCity("Hangzhou");
+        address.setStreet("No." + id + " Wensan Road");
+        address.setZipCode("310000");
+
+        List<Order.OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Order.OrderItem item = new Order.OrderItem();
+            item.setSku("SKU-" + id + "-" + i);
+            item.setTitle("Item " + i + " of order " + id);
+            item.setQuantity(i + 1);
+            item.setPrice(9.9 * (i + 1));
+            items.add(item);
+        }
+
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("channel", "app");
+        tags.put("region", "cn-east");
+
+        Order order = new Order();
+        order.setId(id);
+        order.setCustomer("customer-" + id);
+        order.setCreateTime(1_600_000_000_000L + id);
+        order.setAddress(address);
+        order.setItems(items);
+        order.setTags(tags);
+        return order;
+    }
+
+    private static List<Order> orders() {
+        List<Order> orders = new ArrayList<>(LIST_SIZE);
+        for (int i = 0; i < LIST_SIZE; i++) {
+            orders.add(order(i));
+        }
+        return orders;
+    }
+
+    private static byte[] blob() {
+        byte[] bytes = new byte[BLOB_SIZE];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
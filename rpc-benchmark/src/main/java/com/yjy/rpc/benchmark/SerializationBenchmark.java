@@ -0,0 +1,82 @@
+package com.yjy.rpc.benchmark;
+
+import com.yjy.rpc.core.common.RpcRequest;
+import com.yjy.rpc.core.common.RpcResponse;
+import com.yjy.rpc.core.protocol.enums.SerializationType;
+import com.yjy.rpc.core.serialization.Serialization;
+import com.yjy.rpc.core.serialization.SerializationFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各序列化算法对 RpcRequest/RpcResponse 的序列化、反序列化性能对比。
+ * <p>
+ * 运行方式：{@code java -jar rpc-benchmark/target/benchmarks.jar SerializationBenchmark -prof gc}，
+ * {@code -prof gc} 会额外输出每次操作的内存分配量（gc.alloc.rate.norm）。每种组合序列化后的字节数在初始化时打印。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"JDK", "JSON", "HESSIAN", "KRYO", "PROTOSTUFF"})
+    private SerializationType serializer;
+
+    @Param({"SMALL", "NESTED", "LARGE_LIST", "BLOB"})
+    private Payload payload;
+
+    private Serialization serialization;
+
+    private RpcRequest request;
+
+    private RpcResponse response;
+
+    private byte[] requestBytes;
+
+    private byte[] responseBytes;
+
+    @Setup
+    public void setup() {
+        serialization = SerializationFactory.getSerialization(serializer);
+        request = payload.request();
+        response = payload.response();
+        requestBytes = serialization.serialize(request);
+        responseBytes = serialization.serialize(response);
+        System.out.printf("%n%s %s: request %d bytes, response %d bytes%n",
+                serializer, payload, requestBytes.length, responseBytes.length);
+    }
+
+    @Benchmark
+    public byte[] serializeRequest() {
+        return serialization.serialize(request);
+    }
+
+    @Benchmark
+    public RpcRequest deserializeRequest() {
+        return serialization.deserialize(RpcRequest.class, requestBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() {
+        return serialization.serialize(response);
+    }
+
+    @Benchmark
+    public RpcResponse deserializeResponse() {
+        return serialization.deserialize(RpcResponse.class, responseBytes);
+    }
+}
@@ -1,5 +1,6 @@
 package com.yjy.rpc.client.config;
 
+import com.yjy.rpc.core.protocol.constant.ProtocolConstants;
 import lombok.Data;
 
 @Data
@@ -30,6 +31,79 @@ public class RpcClientProperties {
      * metadata中的那个超时事件
      */
     private Integer timeout;
+    /**
+     * 单个数据帧的最大长度，默认 8MB
+     */
+    private Integer maxFrameLength;
+    /**
+     * 分片重组后消息体的最大长度，默认 64MB
+     */
+    private Integer maxMessageLength;
+    /**
+     * 分片大小，消息体超过该大小时拆分为多个帧发送，默认 256KB，0 表示不分片
+     */
+    private Integer chunkSize;
+    /**
+     * 压缩算法：none, deflate, snappy，默认 deflate。只对版本 2 协议生效，版本 1 的消息不压缩；none 表示请求不压缩
+     */
+    private String compression;
+    /**
+     * 压缩阈值，消息体达到该大小才进行压缩，默认 4KB
+     */
+    private Integer compressThreshold;
+    /**
+     * 协议版本：1 或 2，默认 1。版本 2 支持 64 位序列号、附加信息（如超时时间）、压缩和方法引用，
+     * 所有服务提供方都升级到支持版本 2 之后再设置为 2
+     */
+    private Integer protocolVersion;
+    /**
+     * 是否合并刷新，同一轮事件循环中写入的请求只 flush 一次，默认 false
+     */
+    private Boolean flushConsolidation;
+    /**
+     * 合并刷新的等待窗口，单位微秒，默认 0（只合并同一轮事件循环中的写入）
+     */
+    private Integer flushWindowMicros;
+    /**
+     * 是否优先使用原生 epoll 传输，不可用时回退到 NIO，默认 true
+     */
+    private Boolean nativeTransport;
+    /**
+     * 客户端 I/O 线程数，JVM 内所有客户端共用，默认 0（CPU 核数 * 2）
+     */
+    private Integer ioThreads;
+    /**
+     * 到每个服务提供方的连接数，请求分散到未完成请求最少的连接上，默认 1
+     */
+    private Integer connectionsPerEndpoint;
+    /**
+     * 建立连接的超时时间，单位毫秒，默认 5000
+     */
+    private Integer connectTimeout;
+    /**
+     * 创建服务引用时是否预先建立到所有服务提供方的连接，默认 true
+     */
+    private Boolean warmUpConnections;
+    /**
+     * 客户端所有未完成请求数的上限，超过时直接失败，默认 0（不限制）
+     */
+    private Integer maxInFlight;
+    /**
+     * 到每个服务提供方的未完成请求数的上限，超过时按 {@link #unwritablePolicy} 失败或换一个服务提供方，默认 0（不限制）
+     */
+    private Integer maxInFlightPerEndpoint;
+    /**
+     * 连接发送缓冲区的低水位，单位字节，降到低水位以下时连接恢复可写，默认 32KB
+     */
+    private Integer writeBufferLowWaterMark;
+    /**
+     * 连接发送缓冲区的高水位，单位字节，超过高水位时连接不可写，默认 64KB
+     */
+    private Integer writeBufferHighWaterMark;
+    /**
+     * 连接不可写时的处理策略，合法的值包括：wait, fail, reroute，默认 wait
+     */
+    private String unwritablePolicy;
 
     /**
      * 默认初始化
@@ -41,6 +115,24 @@ public class RpcClientProperties {
         this.registry = "zookeeper";
         this.registryAddr = "127.0.0.1:2181";
         this.timeout = 5000;
+        this.maxFrameLength = ProtocolConstants.DEFAULT_MAX_FRAME_LENGTH;
+        this.maxMessageLength = ProtocolConstants.DEFAULT_MAX_MESSAGE_LENGTH;
+        this.chunkSize = ProtocolConstants.DEFAULT_CHUNK_SIZE;
+        this.compression = "deflate";
+        this.compressThreshold = ProtocolConstants.DEFAULT_COMPRESS_THRESHOLD;
+        this.protocolVersion = (int) ProtocolConstants.VERSION;
+        this.flushConsolidation = false;
+        this.flushWindowMicros = 0;
+        this.nativeTransport = true;
+        this.ioThreads = 0;
+        this.connectionsPerEndpoint = 1;
+        this.connectTimeout = 5000;
+        this.warmUpConnections = true;
+        this.maxInFlight = 0;
+        this.maxInFlightPerEndpoint = 0;
+        this.writeBufferLowWaterMark = 32 * 1024;
+        this.writeBufferHighWaterMark = 64 * 1024;
+        this.unwritablePolicy = "wait";
     }
 
 }
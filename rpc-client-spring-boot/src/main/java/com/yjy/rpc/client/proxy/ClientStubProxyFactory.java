@@ -2,14 +2,19 @@ package com.yjy.rpc.client.proxy;
 
 import com.yjy.rpc.client.config.RpcClientProperties;
 import com.yjy.rpc.client.transport.RpcClient;
+import com.yjy.rpc.core.common.ServiceInfo;
 import com.yjy.rpc.core.discovery.ServiceDiscovery;
 import com.yjy.rpc.core.util.ServiceUtil;
+import lombok.extern.slf4j.Slf4j;
 import net.sf.cglib.proxy.Enhancer;
 
 import java.lang.reflect.Proxy;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+@Slf4j
 public class ClientStubProxyFactory {
     /**
      * 服务发现中心实现类：连接zk客户端，通过服务名得到list<ServiceInfo>，使用负载均衡得到一个ServiceInfo(服务名加地址)
@@ -38,6 +43,11 @@ public class ClientStubProxyFactory {
      */
     private static final Map<String, Object> proxyMap = new ConcurrentHashMap<>();
 
+    /**
+     * 已经预先建立过连接的服务
+     */
+    private static final Set<String> warmedServices = ConcurrentHashMap.newKeySet();
+
 
     /**
      * 根据接口信息，获取代理对象
@@ -64,8 +74,37 @@ public class ClientStubProxyFactory {
                 return enhancer.create();
             }
         });
+        String serviceName = ServiceUtil.serviceKey(clazz.getName(), version);
+        if (Boolean.TRUE.equals(properties.getWarmUpConnections()) && warmedServices.add(serviceName)) {
+            warmUp(serviceName);
+        }
         return (T) proxy;
     }
 
+    /**
+     * 预先建立到服务所有提供方的连接，同时把服务列表缓存到本地，第一次调用时不再等待服务发现和 TCP 握手。
+     * 连接异步建立，失败不影响创建服务引用
+     */
+    private void warmUp(String serviceName) {
+        List<ServiceInfo> services;
+        try {
+            services = discovery.getServices(serviceName);
+        } catch (Exception e) {
+            log.warn("Failed to discover the providers of the service [{}] for warming up.", serviceName, e);
+            return;
+        }
+        if (services == null) {
+            return;
+        }
+        for (ServiceInfo service : services) {
+            rpcClient.warmUp(service.getAddress(), service.getPort()).whenComplete((v, cause) -> {
+                if (cause != null) {
+                    log.warn("Failed to warm up the connection to [{}:{}] of the service [{}].",
+                            service.getAddress(), service.getPort(), serviceName, cause);
+                }
+            });
+        }
+    }
+
 }
 
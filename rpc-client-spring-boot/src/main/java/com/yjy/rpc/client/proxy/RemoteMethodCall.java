@@ -3,24 +3,172 @@ package com.yjy.rpc.client.proxy;
 import com.yjy.rpc.client.config.RpcClientProperties;
 import com.yjy.rpc.client.transport.RequestMetadata;
 import com.yjy.rpc.client.transport.RpcClient;
+import com.yjy.rpc.client.transport.UnwritablePolicy;
 import com.yjy.rpc.core.common.RpcRequest;
 import com.yjy.rpc.core.common.RpcResponse;
 import com.yjy.rpc.core.common.ServiceInfo;
 import com.yjy.rpc.core.discovery.ServiceDiscovery;
+import com.yjy.rpc.core.exception.RpcEndpointBusyException;
 import com.yjy.rpc.core.exception.RpcException;
 import com.yjy.rpc.core.protocol.MessageHeader;
 import com.yjy.rpc.core.protocol.RpcMessage;
+import com.yjy.rpc.core.protocol.constant.ProtocolConstants;
+
+import lombok.extern.slf4j.Slf4j;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 远程方法调用工具类
  */
+@Slf4j
 public class RemoteMethodCall {
     public static Object remoteCall(ServiceDiscovery discovery, RpcClient rpcClient, String serviceName,
                                     RpcClientProperties properties, Method method, Object[] args) {
+        // 返回 CompletableFuture 的接口方法异步调用，不阻塞调用线程
+        if (isAsync(method)) {
+            return remoteCallAsync(discovery, rpcClient, serviceName, properties, method, args);
+        }
+        RpcMessage rpcMessage = buildMessage(serviceName, properties, method, args);
+
+        // 进行服务发现
+        ServiceInfo serviceInfo = discovery.discover((RpcRequest) rpcMessage.getBody());
+        if (serviceInfo == null) {
+            throw new RpcException(String.format("The service [%s] was not found in the remote registry center.",
+                    serviceName));
+        }
+
+        // todo：此处可以实现失败重试机制
+        // 用rpcClient发送网络请求，获取结果
+        RpcMessage responseRpcMessage;
+        if (isReroute(properties)) {
+            try {
+                responseRpcMessage = sendWithReroute(discovery, rpcClient, serviceName, properties, rpcMessage,
+                        serviceInfo, new HashSet<>()).get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RpcException ? (RpcException) e.getCause() : new RpcException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RpcException(e);
+            }
+        } else {
+            responseRpcMessage = rpcClient.sendRpcRequest(buildMetadata(rpcMessage, serviceInfo, properties));
+        }
+        return returnValue(responseRpcMessage);
+    }
+
+    /**
+     * 异步远程调用：服务发现、建立连接、发送请求、等待响应都不阻塞调用线程
+     *
+     * @return 方法返回值的 future，调用失败时以 {@link RpcException} 异常完成
+     */
+    public static CompletableFuture<Object> remoteCallAsync(ServiceDiscovery discovery, RpcClient rpcClient,
+                                                            String serviceName, RpcClientProperties properties,
+                                                            Method method, Object[] args) {
+        RpcMessage rpcMessage = buildMessage(serviceName, properties, method, args);
+        return discovery.discoverAsync((RpcRequest) rpcMessage.getBody())
+                .thenCompose(serviceInfo -> {
+                    if (serviceInfo == null) {
+                        throw new RpcException(String.format(
+                                "The service [%s] was not found in the remote registry center.", serviceName));
+                    }
+                    if (isReroute(properties)) {
+                        return sendWithReroute(discovery, rpcClient, serviceName, properties, rpcMessage, serviceInfo,
+                                new HashSet<>());
+                    }
+                    return rpcClient.sendRpcRequestAsync(buildMetadata(rpcMessage, serviceInfo, properties));
+                })
+                .thenApply(RemoteMethodCall::returnValue);
+    }
+
+    /**
+     * 方法是否声明为返回 {@link CompletableFuture} 或 {@link CompletionStage}
+     */
+    public static boolean isAsync(Method method) {
+        Class<?> returnType = method.getReturnType();
+        return returnType == CompletableFuture.class || returnType == CompletionStage.class;
+    }
+
+    private static boolean isReroute(RpcClientProperties properties) {
+        return UnwritablePolicy.parseByName(properties.getUnwritablePolicy()) == UnwritablePolicy.REROUTE;
+    }
+
+    /**
+     * 发送请求，服务提供方繁忙（连接不可写或未完成请求达到上限，请求没有发出）时换一个没有尝试过的服务提供方
+     *
+     * @param tried 已经尝试过的服务提供方地址
+     */
+    private static CompletableFuture<RpcMessage> sendWithReroute(ServiceDiscovery discovery, RpcClient rpcClient,
+                                                                 String serviceName, RpcClientProperties properties,
+                                                                 RpcMessage rpcMessage, ServiceInfo serviceInfo,
+                                                                 Set<String> tried) {
+        tried.add(serviceInfo.getAddress() + ":" + serviceInfo.getPort());
+        return rpcClient.sendRpcRequestAsync(buildMetadata(rpcMessage, serviceInfo, properties))
+                .handle((response, cause) -> {
+                    if (cause == null) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    Throwable error = cause instanceof CompletionException && cause.getCause() != null
+                            ? cause.getCause() : cause;
+                    ServiceInfo next = error instanceof RpcEndpointBusyException
+                            ? nextProvider(discovery, serviceName, tried) : null;
+                    if (next == null) {
+                        CompletableFuture<RpcMessage> failed = new CompletableFuture<>();
+                        failed.completeExceptionally(error);
+                        return failed;
+                    }
+                    log.debug("The provider [{}:{}] of the service [{}] is busy, reroute to [{}:{}].",
+                            serviceInfo.getAddress(), serviceInfo.getPort(), serviceName, next.getAddress(),
+                            next.getPort());
+                    return sendWithReroute(discovery, rpcClient, serviceName, properties, rpcMessage, next, tried);
+                })
+                .thenCompose(future -> future);
+    }
+
+    /**
+     * 随机选择一个没有尝试过的服务提供方
+     *
+     * @return 服务提供方，没有时返回 null
+     */
+    private static ServiceInfo nextProvider(ServiceDiscovery discovery, String serviceName, Set<String> tried) {
+        List<ServiceInfo> services;
+        try {
+            services = discovery.getServices(serviceName);
+        } catch (Exception e) {
+            log.warn("Failed to discover the providers of the service [{}] for rerouting.", serviceName, e);
+            return null;
+        }
+        if (services == null) {
+            return null;
+        }
+        List<ServiceInfo> candidates = new ArrayList<>(services.size());
+        for (ServiceInfo service : services) {
+            if (!tried.contains(service.getAddress() + ":" + service.getPort())) {
+                candidates.add(service);
+            }
+        }
+        return candidates.isEmpty() ? null : candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+    }
+
+    private static RpcMessage buildMessage(String serviceName, RpcClientProperties properties, Method method,
+                                           Object[] args) {
         // 构建请求头
-        MessageHeader header = MessageHeader.build(properties.getSerialization());
+        MessageHeader header = MessageHeader.build(properties.getSerialization(), properties.getCompression(),
+                properties.getProtocolVersion().byteValue());
+        // 版本 2 携带超时时间，服务端据此丢弃已经超时的请求
+        if (header.getVersion() == ProtocolConstants.VERSION_2 && properties.getTimeout() != null
+                && properties.getTimeout() > 0) {
+            header.putAttachment(ProtocolConstants.ATTACHMENT_TIMEOUT, String.valueOf(properties.getTimeout()));
+        }
 
         // 构建请求体
         RpcRequest request = new RpcRequest();
@@ -33,23 +181,20 @@ public class RemoteMethodCall {
         RpcMessage rpcMessage = new RpcMessage();
         rpcMessage.setHeader(header);
         rpcMessage.setBody(request);
+        return rpcMessage;
+    }
 
-        // 进行服务发现
-        ServiceInfo serviceInfo = discovery.discover(request);
-        if (serviceInfo == null) {
-            throw new RpcException(String.format("The service [%s] was not found in the remote registry center.",
-                    serviceName));
-        }
+    private static RequestMetadata buildMetadata(RpcMessage rpcMessage, ServiceInfo serviceInfo,
+                                                 RpcClientProperties properties) {
         // 构建请求元数据
-        RequestMetadata metadata = RequestMetadata.builder()
+        return RequestMetadata.builder()
                 .rpcMessage(rpcMessage)
                 .serverAddr(serviceInfo.getAddress())
                 .port(serviceInfo.getPort())
                 .timeout(properties.getTimeout()).build();
+    }
 
-        // todo：此处可以实现失败重试机制
-        // 用rpcClient发送网络请求，获取结果
-        RpcMessage responseRpcMessage = rpcClient.sendRpcRequest(metadata);
+    private static Object returnValue(RpcMessage responseRpcMessage) {
         if (responseRpcMessage == null) {
             throw new RpcException("Remote procedure call timeout.");
         }
@@ -63,10 +208,6 @@ public class RemoteMethodCall {
         }
         // 返回响应结果
         return response.getReturnValue();
-
-
-
-
     }
 
 }
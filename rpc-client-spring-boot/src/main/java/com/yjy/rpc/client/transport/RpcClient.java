@@ -1,6 +1,9 @@
 package com.yjy.rpc.client.transport;
 
 import com.yjy.rpc.core.protocol.RpcMessage;
+
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Rpc 客户端类，负责向服务端发起请求（远程过程调用）
  * 接收RequestMetadata（message+地址）得到message
@@ -10,4 +13,25 @@ public interface RpcClient {
      * 发起远程过程调用
      */
     RpcMessage sendRpcRequest(RequestMetadata requestMetadata);
+
+    /**
+     * 异步发起远程过程调用，默认在公共线程池中执行 {@link #sendRpcRequest(RequestMetadata)}，
+     * 支持非阻塞 I/O 的实现应当重写该方法
+     *
+     * @return 响应消息的 future，调用失败或超时时异常完成
+     */
+    default CompletableFuture<RpcMessage> sendRpcRequestAsync(RequestMetadata requestMetadata) {
+        return CompletableFuture.supplyAsync(() -> sendRpcRequest(requestMetadata));
+    }
+
+    /**
+     * 预先建立到服务提供方的连接，默认不做任何事情
+     *
+     * @param serverAddr 服务提供方地址
+     * @param port       服务提供方端口
+     * @return 连接建立完成时完成
+     */
+    default CompletableFuture<Void> warmUp(String serverAddr, Integer port) {
+        return CompletableFuture.completedFuture(null);
+    }
 }
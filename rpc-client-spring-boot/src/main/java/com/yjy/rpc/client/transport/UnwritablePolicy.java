@@ -0,0 +1,30 @@
+package com.yjy.rpc.client.transport;
+
+/**
+ * 连接不可写（发送缓冲区超过高水位）或到服务提供方的未完成请求达到上限时的处理策略
+ */
+public enum UnwritablePolicy {
+    /**
+     * 请求留在客户端，等待连接恢复可写后再发送，最长等待到请求超时；未完成请求达到上限时直接失败
+     */
+    WAIT,
+
+    /**
+     * 直接失败
+     */
+    FAIL,
+
+    /**
+     * 换一个服务提供方发送，所有服务提供方都繁忙时失败
+     */
+    REROUTE;
+
+    public static UnwritablePolicy parseByName(String policyName) {
+        for (UnwritablePolicy policy : UnwritablePolicy.values()) {
+            if (policy.name().equalsIgnoreCase(policyName)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException(String.format("The unwritable policy %s is illegal.", policyName));
+    }
+}
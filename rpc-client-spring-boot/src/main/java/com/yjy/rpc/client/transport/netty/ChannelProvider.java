@@ -1,44 +1,311 @@
 package com.yjy.rpc.client.transport.netty;
 
+import com.yjy.rpc.core.exception.RpcException;
 import io.netty.channel.Channel;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
 /**
  * 保存并获取 Channel 对象
+ * 每个服务提供方（ip:port）维护固定数量的连接，请求分散到多个连接（多个 socket、多个 I/O 线程）上，
+ * 每次选择未完成请求最少的可写连接；断开的连接在后台重新建立，不阻塞正在使用其他连接的调用。
+ * <p>
+ * 每个槽位同时只有一次连接，并发的第一次调用等待同一批连接，不会重复建立。连接失败后按指数退避，
+ * 退避期间没有活跃连接的调用直接失败，不再反复连接不可用的服务提供方
  */
 public class ChannelProvider {
     /**
-     * 存储 Channel，key 为 ip:port，val 为 channel 对象
+     * 存储连接池，key 为 ip:port，val 为该地址的连接池
      */
-    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final Map<String, ChannelPool> pools = new ConcurrentHashMap<>();
 
-    public Channel get(String hostname, Integer port) {
-        String key = hostname + ":" + port;
-        // 如果之前对应的 ip port 已经建立了 channel
-        if (channels.containsKey(key)) {
-            // 取出 channel
-            Channel channel = channels.get(key);
-            // 如果 channel 不为 null，并且处于活跃状态（连接状态）
-            if (channel != null && channel.isActive()) {
-                return channel;
-            } else {
-                // 为 null 或者已经关闭连接，从 map 中移除
-                channels.remove(key);
-            }
+    /**
+     * 每个服务提供方的连接数
+     */
+    private final int poolSize;
+
+    public ChannelProvider() {
+        this(1);
+    }
+
+    /**
+     * @param poolSize 每个服务提供方的连接数
+     */
+    public ChannelProvider(int poolSize) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("The connections per endpoint must be positive: " + poolSize);
         }
-        return null;
+        this.poolSize = poolSize;
+    }
+
+    public Channel get(String hostname, Integer port) {
+        ChannelPool pool = pools.get(hostname + ":" + port);
+        // 如果之前对应的 ip port 已经建立了 channel，取出其中最空闲的活跃连接
+        return pool == null ? null : pool.select();
     }
     public Channel get(InetSocketAddress inetSocketAddress) {
         return get(inetSocketAddress.getHostName(), inetSocketAddress.getPort());
     }
     public void set(String hostname, Integer port, Channel channel) {
-        String key = hostname + ":" + port;
-        channels.put(key, channel);
+        pool(hostname + ":" + port).put(channel);
     }
     public void set(InetSocketAddress inetSocketAddress, Channel channel) {
         this.set(inetSocketAddress.getHostName(), inetSocketAddress.getPort(), channel);
     }
 
+    /**
+     * 获取到服务提供方的连接：有活跃连接时直接返回最空闲的一个，同时在后台补齐缺少的连接；
+     * 没有活跃连接时等待第一个建立成功的连接
+     *
+     * @param inetSocketAddress 服务提供方地址
+     * @param connector         建立连接的方法
+     */
+    public CompletableFuture<Channel> acquire(InetSocketAddress inetSocketAddress,
+                                              Function<InetSocketAddress, CompletableFuture<Channel>> connector) {
+        ChannelPool pool = pool(inetSocketAddress.getHostName() + ":" + inetSocketAddress.getPort());
+        List<CompletableFuture<Channel>> connecting = pool.refill(inetSocketAddress, connector);
+        Channel channel = pool.select();
+        if (channel != null) {
+            return CompletableFuture.completedFuture(channel);
+        }
+        if (connecting.isEmpty()) {
+            return failedFuture(pool.backoffException(inetSocketAddress));
+        }
+        return firstSuccess(connecting);
+    }
+
+    /**
+     * 预先建立到服务提供方的所有连接，第一次调用时不再等待 TCP 握手
+     *
+     * @param inetSocketAddress 服务提供方地址
+     * @param connector         建立连接的方法
+     * @return 所有连接都已建立（或失败）时完成，至少一个连接可用时正常完成
+     */
+    public CompletableFuture<Void> prewarm(InetSocketAddress inetSocketAddress,
+                                           Function<InetSocketAddress, CompletableFuture<Channel>> connector) {
+        ChannelPool pool = pool(inetSocketAddress.getHostName() + ":" + inetSocketAddress.getPort());
+        List<CompletableFuture<Channel>> connecting = pool.refill(inetSocketAddress, connector);
+        if (connecting.isEmpty()) {
+            return pool.select() != null ? CompletableFuture.completedFuture(null)
+                    : failedFuture(pool.backoffException(inetSocketAddress));
+        }
+        return firstSuccess(connecting).thenCompose(channel -> CompletableFuture
+                .allOf(connecting.toArray(new CompletableFuture[0]))
+                .handle((v, cause) -> null));
+    }
+
+    /**
+     * 到服务提供方的未完成请求数计数器，由调用方维护
+     */
+    public AtomicInteger inFlight(InetSocketAddress inetSocketAddress) {
+        return pool(inetSocketAddress.getHostName() + ":" + inetSocketAddress.getPort()).inFlight;
+    }
+
+    private ChannelPool pool(String key) {
+        return pools.computeIfAbsent(key, k -> new ChannelPool(poolSize));
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable cause) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(cause);
+        return future;
+    }
+
+    /**
+     * 第一个建立成功的连接，全部失败时以最后一个异常完成
+     */
+    private static CompletableFuture<Channel> firstSuccess(List<CompletableFuture<Channel>> futures) {
+        CompletableFuture<Channel> result = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(futures.size());
+        for (CompletableFuture<Channel> future : futures) {
+            future.whenComplete((channel, cause) -> {
+                if (cause == null) {
+                    result.complete(channel);
+                } else if (remaining.decrementAndGet() == 0) {
+                    result.completeExceptionally(cause);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 一个服务提供方的连接池，每个槽位一个连接
+     */
+    private static final class ChannelPool {
+
+        /**
+         * 第一次连接失败后的退避时间，单位毫秒，之后每次失败翻倍
+         */
+        private static final long INITIAL_BACKOFF_MILLIS = 100;
+
+        /**
+         * 最长退避时间，单位毫秒
+         */
+        private static final long MAX_BACKOFF_MILLIS = 10_000;
+
+        private final AtomicReferenceArray<Channel> channels;
+
+        /**
+         * 槽位上正在建立的连接，同一个槽位同时只有一次连接
+         */
+        private final AtomicReferenceArray<CompletableFuture<Channel>> connecting;
+
+        /**
+         * 到该服务提供方的未完成请求数
+         */
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        /**
+         * 连续失败的连接轮数，成功一次即清零
+         */
+        private int failures;
+
+        /**
+         * 每次连接成功或计入一轮失败时加一。同一轮（同一个值下）发起的各槽位连接失败只计一次，
+         * 否则每个槽位都失败一次，退避时间会一下翻倍槽位数次
+         */
+        private volatile int generation;
+
+        /**
+         * 退避结束的时间（System.nanoTime），之前不再建立新连接
+         */
+        private volatile long retryAt;
+
+        ChannelPool(int size) {
+            this.channels = new AtomicReferenceArray<>(size);
+            this.connecting = new AtomicReferenceArray<>(size);
+            this.retryAt = System.nanoTime();
+        }
+
+        /**
+         * 选择未完成请求最少的活跃连接，不可写（发送缓冲区已满）的连接排在后面；从随机位置开始比较，负载相同时分散到各个连接
+         *
+         * @return 活跃连接，没有时返回 null
+         */
+        Channel select() {
+            int size = channels.length();
+            int start = size == 1 ? 0 : ThreadLocalRandom.current().nextInt(size);
+            Channel best = null;
+            long bestScore = Long.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                Channel channel = channels.get((start + i) % size);
+                if (channel == null || !channel.isActive()) {
+                    continue;
+                }
+                PendingRequests pendingRequests = PendingRequests.get(channel);
+                long score = pendingRequests == null ? 0 : pendingRequests.size();
+                if (!channel.isWritable()) {
+                    score += Integer.MAX_VALUE;
+                }
+                if (score < bestScore) {
+                    best = channel;
+                    bestScore = score;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * 为空的或已经断开的槽位建立连接
+         *
+         * @return 所有正在建立的连接
+         */
+        List<CompletableFuture<Channel>> refill(InetSocketAddress address,
+                                                Function<InetSocketAddress, CompletableFuture<Channel>> connector) {
+            List<CompletableFuture<Channel>> futures = new ArrayList<>(0);
+            boolean backingOff = System.nanoTime() - retryAt < 0;
+            int round = generation;
+            for (int i = 0; i < channels.length(); i++) {
+                CompletableFuture<Channel> inProgress = connecting.get(i);
+                if (inProgress != null) {
+                    futures.add(inProgress);
+                    continue;
+                }
+                Channel channel = channels.get(i);
+                if (channel != null && channel.isActive() || backingOff) {
+                    continue;
+                }
+                CompletableFuture<Channel> future = new CompletableFuture<>();
+                if (!connecting.compareAndSet(i, null, future)) {
+                    // 其他线程已经开始建立这个槽位的连接
+                    inProgress = connecting.get(i);
+                    if (inProgress != null) {
+                        futures.add(inProgress);
+                    }
+                    continue;
+                }
+                int slot = i;
+                connector.apply(address).whenComplete((connected, cause) -> {
+                    if (cause == null) {
+                        channels.set(slot, connected);
+                        succeeded();
+                    } else {
+                        failed(round);
+                    }
+                    connecting.set(slot, null);
+                    if (cause == null) {
+                        future.complete(connected);
+                    } else {
+                        future.completeExceptionally(cause);
+                    }
+                });
+                futures.add(future);
+            }
+            return futures;
+        }
+
+        private synchronized void succeeded() {
+            generation++;
+            failures = 0;
+            retryAt = System.nanoTime();
+        }
+
+        /**
+         * 连接失败，同一轮中只有第一次失败会增加退避时间
+         *
+         * @param round 发起连接时的 {@link #generation}
+         */
+        private synchronized void failed(int round) {
+            if (round != generation) {
+                // 本轮已经计入失败，或者期间有连接成功
+                return;
+            }
+            generation++;
+            long backoff = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << Math.min(failures, 16));
+            failures++;
+            // 加入随机抖动，避免多个客户端同时重试
+            backoff = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+            retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff);
+        }
+
+        synchronized RpcException backoffException(InetSocketAddress address) {
+            long remaining = Math.max(0, TimeUnit.NANOSECONDS.toMillis(retryAt - System.nanoTime()));
+            return new RpcException(String.format("The client failed to connect to [%s] %d times in a row, " +
+                    "the next attempt is in %dms.", address, failures, remaining));
+        }
+
+        /**
+         * 放入一个外部建立的连接：优先放入空的或已经断开的槽位，否则替换第一个槽位
+         */
+        void put(Channel channel) {
+            for (int i = 0; i < channels.length(); i++) {
+                Channel current = channels.get(i);
+                if ((current == null || !current.isActive()) && channels.compareAndSet(i, current, channel)) {
+                    return;
+                }
+            }
+            channels.set(0, channel);
+        }
+    }
 }
@@ -0,0 +1,63 @@
+package com.yjy.rpc.client.transport.netty;
+
+import com.yjy.rpc.core.transport.NettyTransport;
+import io.netty.channel.EventLoopGroup;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * JVM 内所有 {@link NettyRpcClient} 共用的事件循环组，按引用计数管理：第一个客户端创建，最后一个客户端关闭时释放。
+ * 避免每个客户端实例都创建 CPU 核数 * 2 个 I/O 线程。
+ * <p>
+ * 线程数和 I/O 实现由第一个创建事件循环组的客户端决定。
+ */
+@Slf4j
+final class ClientEventLoopGroup {
+
+    private static ClientEventLoopGroup shared;
+
+    private static int refCount;
+
+    private final NettyTransport transport;
+
+    private final EventLoopGroup group;
+
+    private ClientEventLoopGroup(NettyTransport transport, EventLoopGroup group) {
+        this.transport = transport;
+        this.group = group;
+    }
+
+    /**
+     * 获取共享的事件循环组，引用计数加 1
+     *
+     * @param preferred 期望的 I/O 实现，已经创建时以已有的为准
+     * @param threads   I/O 线程数，0 表示使用 Netty 的默认值
+     */
+    static synchronized ClientEventLoopGroup acquire(NettyTransport preferred, int threads) {
+        if (refCount++ == 0) {
+            shared = new ClientEventLoopGroup(preferred, preferred.newEventLoopGroup(threads, "rpc-client-io"));
+            log.debug("The client event loop group is created, transport: {}.", preferred);
+        }
+        return shared;
+    }
+
+    /**
+     * 引用计数减 1，减到 0 时关闭事件循环组
+     */
+    static synchronized void release() {
+        if (refCount <= 0) {
+            return;
+        }
+        if (--refCount == 0) {
+            shared.group.shutdownGracefully();
+            shared = null;
+        }
+    }
+
+    NettyTransport transport() {
+        return transport;
+    }
+
+    EventLoopGroup group() {
+        return group;
+    }
+}
@@ -0,0 +1,154 @@
+package com.yjy.rpc.client.transport.netty;
+
+import com.yjy.rpc.core.common.RpcRequest;
+import com.yjy.rpc.core.protocol.MessageHeader;
+import com.yjy.rpc.core.protocol.RpcMessage;
+import com.yjy.rpc.core.protocol.constant.ProtocolConstants;
+import com.yjy.rpc.core.protocol.enums.SerializationType;
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接级别的方法字典，避免每次调用都传输服务名、方法名和参数类型。
+ * <p>
+ * 连接上第一次调用某个方法时，发送完整的请求并在附加信息中携带新分配的编号（{@link ProtocolConstants#ATTACHMENT_METHOD_DEFINE}），
+ * 服务端在 I/O 线程中按顺序记录编号与方法的对应关系。该请求写入成功后，后续调用只携带编号
+ * （{@link ProtocolConstants#ATTACHMENT_METHOD_REF}）和参数。TCP 保证了顺序，服务端处理引用时一定已经收到了定义。
+ * <p>
+ * 只有版本 2 协议支持附加信息；JSON 序列化需要根据参数类型解码参数，也不使用精简请求。
+ * 字典保存在 Channel 的属性中，随连接关闭一起失效。
+ */
+final class MethodDictionary {
+
+    private static final AttributeKey<MethodDictionary> KEY = AttributeKey.valueOf("rpc.methodDictionary");
+
+    /**
+     * 方法签名 -- 方法定义
+     */
+    private final Map<MethodKey, Definition> definitions = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    private MethodDictionary() {
+    }
+
+    /**
+     * 获取连接对应的方法字典，不存在时创建
+     */
+    static MethodDictionary get(Channel channel) {
+        Attribute<MethodDictionary> attribute = channel.attr(KEY);
+        MethodDictionary dictionary = attribute.get();
+        if (dictionary == null) {
+            dictionary = new MethodDictionary();
+            MethodDictionary old = attribute.setIfAbsent(dictionary);
+            if (old != null) {
+                dictionary = old;
+            }
+        }
+        return dictionary;
+    }
+
+    /**
+     * 按字典改写请求：已确认的方法只发送编号，第一次出现的方法附带定义
+     *
+     * @param message 请求消息
+     * @return 本次请求新增的方法定义，需要在写入成功后调用 {@link Definition#confirm()}；否则返回 null
+     */
+    Definition compact(RpcMessage message) {
+        MessageHeader header = message.getHeader();
+        if (header.getVersion() != ProtocolConstants.VERSION_2
+                || header.getSerializerType() == SerializationType.JSON.getType()
+                || !(message.getBody() instanceof RpcRequest)) {
+            return null;
+        }
+        RpcRequest request = (RpcRequest) message.getBody();
+        MethodKey key = new MethodKey(request.getServiceName(), request.getMethod(), request.getParameterTypes());
+        Definition definition = definitions.get(key);
+        if (definition == null) {
+            if (definitions.size() >= ProtocolConstants.MAX_METHOD_DEFINITIONS) {
+                return null;
+            }
+            Definition created = new Definition(nextId.getAndIncrement());
+            definition = definitions.putIfAbsent(key, created);
+            if (definition == null) {
+                header.putAttachment(ProtocolConstants.ATTACHMENT_METHOD_DEFINE, Integer.toString(created.id));
+                return created;
+            }
+        }
+        // 定义还没有写出去时仍然发送完整的请求
+        if (definition.confirmed) {
+            header.putAttachment(ProtocolConstants.ATTACHMENT_METHOD_REF, Integer.toString(definition.id));
+            request.setServiceName(null);
+            request.setMethod(null);
+            request.setParameterTypes(null);
+        }
+        return null;
+    }
+
+    /**
+     * 方法定义
+     */
+    static final class Definition {
+
+        private final int id;
+
+        /**
+         * 携带定义的请求是否已经写入连接
+         */
+        private volatile boolean confirmed;
+
+        Definition(int id) {
+            this.id = id;
+        }
+
+        void confirm() {
+            confirmed = true;
+        }
+    }
+
+    /**
+     * 方法签名：服务名 + 方法名 + 参数类型
+     */
+    private static final class MethodKey {
+
+        private final String serviceName;
+
+        private final String method;
+
+        private final Class<?>[] parameterTypes;
+
+        private final int hash;
+
+        MethodKey(String serviceName, String method, Class<?>[] parameterTypes) {
+            this.serviceName = serviceName;
+            this.method = method;
+            this.parameterTypes = parameterTypes;
+            this.hash = 31 * (31 * Objects.hashCode(serviceName) + Objects.hashCode(method)) + Arrays.hashCode(parameterTypes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MethodKey)) {
+                return false;
+            }
+            MethodKey that = (MethodKey) o;
+            return Objects.equals(serviceName, that.serviceName) && Objects.equals(method, that.method)
+                    && Arrays.equals(parameterTypes, that.parameterTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -1,20 +1,24 @@
 package com.yjy.rpc.client.transport.netty;
 
+import com.yjy.rpc.client.config.RpcClientProperties;
 import com.yjy.rpc.client.transport.RequestMetadata;
 import com.yjy.rpc.client.transport.RpcClient;
+import com.yjy.rpc.client.transport.UnwritablePolicy;
+import com.yjy.rpc.core.codec.CodecOptions;
 import com.yjy.rpc.core.codec.RpcFrameDecoder;
 import com.yjy.rpc.core.codec.SharableRpcMessageCodec;
+import com.yjy.rpc.core.exception.RpcEndpointBusyException;
 import com.yjy.rpc.core.exception.RpcException;
-import com.yjy.rpc.core.factory.SingletonFactory;
+import com.yjy.rpc.core.exception.RpcOverloadException;
 import com.yjy.rpc.core.protocol.RpcMessage;
+import com.yjy.rpc.core.protocol.enums.CompressionType;
+import com.yjy.rpc.core.transport.FlushCoalescingHandler;
+import com.yjy.rpc.core.transport.FlushMetrics;
+import com.yjy.rpc.core.transport.NettyTransport;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.timeout.IdleStateHandler;
-import io.netty.util.concurrent.DefaultPromise;
-import io.netty.util.concurrent.Promise;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
@@ -22,144 +26,299 @@ import java.net.InetSocketAddress;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 基于 Netty 实现的 Rpc Client 类
  * 用包含NettyRpcResponseHandler构建netty（bootstrap用于配置netty启动参数）
- * 接收到元数据，去拿channel对象，创建promise对象（异步事件结果），存到Handler
- * 发送请求，promise.await()等待异步结果
- * 如果收到response包，handler中会根据id查到promise，给它设置状态和返回值
- * await触发，从promise中拿到responseRpcMessage
+ * 接收到元数据，去拿channel对象，把返回给调用方的 CompletableFuture 登记到连接的未完成请求表，同步调用在 future 上等待
+ * 如果收到response包，handler中会根据id查到future，给它设置返回值或异常
+ * 超时由时间轮处理，连接断开时所有未完成的请求立即失败，见 {@link PendingRequests}
  */
 @Slf4j
 public class NettyRpcClient implements RpcClient {
 
     private final Bootstrap bootstrap;
     /**
-     * 事件循环对象组，每一个事件循环对象对应一个线程（维护一个 Selector），用来处理 channel 上的 io 事件
+     * 事件循环对象组，每一个事件循环对象对应一个线程（维护一个 Selector），用来处理 channel 上的 io 事件。
+     * JVM 内所有客户端共用，见 {@link ClientEventLoopGroup}
      */
     private final EventLoopGroup eventLoopGroup;
     /**
-     * Channel 对象缓存工具类
+     * Channel 对象缓存工具类，每个服务提供方维护一组连接
      */
     private final ChannelProvider channelProvider;
+    /**
+     * 合并刷新的统计信息
+     */
+    private final FlushMetrics flushMetrics = new FlushMetrics();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * 所有未完成请求数的上限、到每个服务提供方的未完成请求数的上限，0 表示不限制
+     */
+    private final int maxInFlight;
+
+    private final int maxInFlightPerEndpoint;
+
+    /**
+     * 所有服务提供方的未完成请求数
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * 连接不可写时的处理策略
+     */
+    private final UnwritablePolicy unwritablePolicy;
+
     public NettyRpcClient() {
-        //todo?
+        this(new RpcClientProperties());
+    }
+
+    public NettyRpcClient(RpcClientProperties properties) {
+        CodecOptions codecOptions = CodecOptions.builder()
+                .maxFrameLength(properties.getMaxFrameLength())
+                .maxMessageLength(properties.getMaxMessageLength())
+                .chunkSize(properties.getChunkSize())
+                .compressType(CompressionType.parseByName(properties.getCompression()))
+                .compressThreshold(properties.getCompressThreshold())
+                .build();
+        // 协议版本，用于心跳消息
+        byte protocolVersion = properties.getProtocolVersion().byteValue();
+        // 合并刷新的等待窗口，小于 0 表示不合并刷新
+        int flushWindowMicros = Boolean.TRUE.equals(properties.getFlushConsolidation())
+                ? properties.getFlushWindowMicros() : -1;
+        // 所有客户端共用一个事件循环组
+        ClientEventLoopGroup shared = ClientEventLoopGroup.acquire(
+                NettyTransport.select(Boolean.TRUE.equals(properties.getNativeTransport())), properties.getIoThreads());
+        eventLoopGroup = shared.group();
         bootstrap = new Bootstrap();
-        eventLoopGroup = new NioEventLoopGroup();
         bootstrap.group(eventLoopGroup)
-                .channel(NioSocketChannel.class)
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
+                .channel(shared.transport().socketChannelClass())
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, properties.getConnectTimeout())
+                // 发送缓冲区超过高水位时连接不可写，请求按不可写策略处理，客户端内存不会随变慢的服务端无限增长
+                .option(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(
+                        properties.getWriteBufferLowWaterMark(), properties.getWriteBufferHighWaterMark()))
                 .handler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     protected void initChannel(SocketChannel ch) throws Exception {
                         // 超过 15s 内如果没有向服务器写数据，会触发一个 IdleState#WRITE_IDLE 事件
                         ch.pipeline().addLast(new IdleStateHandler(0, 15, 0, TimeUnit.SECONDS));
                         // 添加 粘包拆包 解码器
-                        ch.pipeline().addLast(new RpcFrameDecoder());
+                        ch.pipeline().addLast(new RpcFrameDecoder(codecOptions));
                         // 添加 协议编解码器
-                        ch.pipeline().addLast(new SharableRpcMessageCodec());
+                        ch.pipeline().addLast(new SharableRpcMessageCodec(codecOptions));
+                        if (flushWindowMicros >= 0) {
+                            // 合并多个调用线程并发写入的请求的 flush
+                            ch.pipeline().addLast(new FlushCoalescingHandler(flushWindowMicros, flushMetrics));
+                        }
                         // 添加 rpc 响应消息处理器
-                        ch.pipeline().addLast(new NettyRpcResponseHandler());
+                        ch.pipeline().addLast(new NettyRpcResponseHandler(protocolVersion));
                     }
                 });
-        this.channelProvider = SingletonFactory.getInstance(ChannelProvider.class);
+        // 连接池按客户端的配置建立，不同配置的客户端不共用连接
+        this.channelProvider = new ChannelProvider(Math.max(1, properties.getConnectionsPerEndpoint()));
+        this.maxInFlight = Math.max(0, properties.getMaxInFlight());
+        this.maxInFlightPerEndpoint = Math.max(0, properties.getMaxInFlightPerEndpoint());
+        this.unwritablePolicy = UnwritablePolicy.parseByName(properties.getUnwritablePolicy());
     }
     @Override
     @SneakyThrows//偷偷扔了
     public RpcMessage sendRpcRequest(RequestMetadata requestMetadata) {
-        // 构建接收返回结果的 promise,表示一个异步操作的结果或状态
-        Promise<RpcMessage> promise;
-        // 获取 Channel 对象
-        Channel channel = getChannel(new InetSocketAddress(requestMetadata.getServerAddr(), requestMetadata.getPort()));
-        if (channel.isActive()) {
-            // 创建 promise 来接受结果         指定执行完成通知的线程
-            promise = new DefaultPromise<>(channel.eventLoop());
-            // 获取请求的序列号 ID
-            int sequenceId = requestMetadata.getRpcMessage().getHeader().getSequenceId();
-            // 存入还未处理的请求
-            NettyRpcResponseHandler.UNPROCESSED_RPC_RESPONSES.put(sequenceId, promise);
-            // 发送数据并监听发送状态
-            channel.writeAndFlush(requestMetadata.getRpcMessage()).addListener((ChannelFutureListener) future -> {
-                if (future.isSuccess()) {
-                    log.debug("The client send the message successfully, msg: [{}].", requestMetadata);
-                } else {
-                    future.channel().close();
-                    promise.setFailure(future.cause());
-                    log.error("The client send the message failed.", future.cause());
+        // 同步调用等待异步调用的结果，超时由异步调用负责
+        try {
+            return sendRpcRequestAsync(requestMetadata).get();
+        } catch (ExecutionException e) {
+            throw new RpcException(e.getCause());
+        }
+    }
+
+    /**
+     * 异步发起远程过程调用，建立连接、发送请求、等待响应都不阻塞调用线程。
+     * <p>
+     * 返回的 future 在 I/O 线程中完成，耗时的后续处理应当使用 {@code thenXxxAsync} 交给其他线程执行
+     */
+    @Override
+    public CompletableFuture<RpcMessage> sendRpcRequestAsync(RequestMetadata requestMetadata) {
+        CompletableFuture<RpcMessage> result = new CompletableFuture<>();
+        InetSocketAddress address = new InetSocketAddress(requestMetadata.getServerAddr(), requestMetadata.getPort());
+        if (!acquirePermits(address, result)) {
+            return result;
+        }
+        getChannelAsync(address)
+                .whenComplete((channel, cause) -> {
+                    if (cause != null) {
+                        result.completeExceptionally(cause);
+                    } else if (!channel.isActive()) {
+                        result.completeExceptionally(new IllegalStateException("The channel is inactivate."));
+                    } else if (channel.eventLoop().inEventLoop()) {
+                        send(channel, requestMetadata, result);
+                    } else {
+                        // 在 I/O 线程中判断是否可写并写出：其他线程写入的消息编码前不计入发送缓冲区，在调用线程中判断会低估缓冲区大小
+                        channel.eventLoop().execute(() -> send(channel, requestMetadata, result));
+                    }
+                });
+        return result;
+    }
+
+    /**
+     * 申请未完成请求的名额，请求完成时归还
+     *
+     * @return 是否申请成功，超过上限时以异常完成 future 并返回 false
+     */
+    private boolean acquirePermits(InetSocketAddress address, CompletableFuture<RpcMessage> result) {
+        if (maxInFlight > 0 && !tryIncrement(inFlight, maxInFlight)) {
+            result.completeExceptionally(new RpcOverloadException(String.format(
+                    "The client has reached the limit of %d requests in flight.", maxInFlight)));
+            return false;
+        }
+        AtomicInteger endpointInFlight = maxInFlightPerEndpoint > 0 ? channelProvider.inFlight(address) : null;
+        if (endpointInFlight != null && !tryIncrement(endpointInFlight, maxInFlightPerEndpoint)) {
+            if (maxInFlight > 0) {
+                inFlight.decrementAndGet();
+            }
+            result.completeExceptionally(new RpcEndpointBusyException(String.format(
+                    "The client has reached the limit of %d requests in flight to [%s].", maxInFlightPerEndpoint,
+                    address)));
+            return false;
+        }
+        if (maxInFlight > 0 || endpointInFlight != null) {
+            result.whenComplete((response, cause) -> {
+                if (maxInFlight > 0) {
+                    inFlight.decrementAndGet();
+                }
+                if (endpointInFlight != null) {
+                    endpointInFlight.decrementAndGet();
                 }
             });
+        }
+        return true;
+    }
 
-            Integer timeout = requestMetadata.getTimeout();
-            // 等待结果返回（让出cpu资源，同步阻塞调用线程main，其他线程去执行获取操作（eventLoop））
-            // 如果没有指定超时时间，则 await 直到 promise 完成
-            if (timeout == null || timeout <= 0) {
-                //promise.await():等待异步操作的结果
-                promise.await();
-            }else {
-                // 在指定超时时间内等待结果返回
-                boolean success = promise.await(timeout, TimeUnit.MILLISECONDS);
-                if (!success) {
-                    promise.setFailure(new TimeoutException(String.format("The Remote procedure call exceeded the " +
-                            "specified timeout of %dms.", timeout)));
-                }
+    private static boolean tryIncrement(AtomicInteger counter, int limit) {
+        for (; ; ) {
+            int current = counter.get();
+            if (current >= limit) {
+                return false;
             }
-            if (promise.isSuccess()) {
-                // 返回响应结果
-                RpcMessage responseRpcMessage = promise.getNow();
-                return responseRpcMessage;
-            } else {
-                throw new RpcException(promise.cause());
+            if (counter.compareAndSet(current, current + 1)) {
+                return true;
             }
-        }else {
-            throw new IllegalStateException("The channel is inactivate.");
         }
     }
+
+    /**
+     * 在连接上发送请求，收到响应、发送失败、超时或连接断开时完成 future，只在连接的 I/O 线程中调用。
+     * 连接不可写时按 {@link UnwritablePolicy} 等待、失败或交给调用方换一个服务提供方
+     */
+    private void send(Channel channel, RequestMetadata requestMetadata, CompletableFuture<RpcMessage> result) {
+        if (!channel.isWritable() && unwritablePolicy != UnwritablePolicy.WAIT) {
+            result.completeExceptionally(new RpcEndpointBusyException(String.format(
+                    "The channel to [%s] is not writable, the outbound buffer exceeds the high water mark.",
+                    channel.remoteAddress())));
+            return;
+        }
+        RpcMessage rpcMessage = requestMetadata.getRpcMessage();
+        // 登记到连接的未完成请求表，由连接分配序列号并负责超时
+        PendingRequests pendingRequests = PendingRequests.get(channel);
+        if (!pendingRequests.register(rpcMessage, result, requestMetadata.getTimeout())) {
+            return;
+        }
+        if (channel.isWritable()) {
+            write(channel, pendingRequests, requestMetadata);
+        } else {
+            // 等待期间请求可能已经超时或随连接断开而失败，此时不再写出
+            channel.pipeline().get(NettyRpcResponseHandler.class).writeWhenWritable(channel, result, () -> {
+                if (!result.isDone()) {
+                    write(channel, pendingRequests, requestMetadata);
+                }
+            });
+        }
+    }
+
+    private void write(Channel channel, PendingRequests pendingRequests, RequestMetadata requestMetadata) {
+        RpcMessage rpcMessage = requestMetadata.getRpcMessage();
+        long sequenceId = rpcMessage.getHeader().getSequenceId();
+        // 按连接上的方法字典精简请求
+        MethodDictionary.Definition definition = MethodDictionary.get(channel).compact(rpcMessage);
+        // 发送数据并监听发送状态
+        channel.writeAndFlush(rpcMessage).addListener((ChannelFutureListener) future -> {
+            if (future.isSuccess()) {
+                if (definition != null) {
+                    definition.confirm();
+                }
+                log.debug("The client send the message successfully, msg: [{}].", requestMetadata);
+            } else {
+                future.channel().close();
+                pendingRequests.fail(sequenceId, future.cause());
+                log.error("The client send the message failed.", future.cause());
+            }
+        });
+    }
+
     /**
      * 获取 Channel
      */
     public Channel getChannel(InetSocketAddress inetSocketAddress) throws ExecutionException, InterruptedException {
-        Channel channel = channelProvider.get(inetSocketAddress);
-        if (channel == null) {
-            //没有的话就建立连接
-            channel = doConnect(inetSocketAddress);
-            channelProvider.set(inetSocketAddress, channel);
-        }
-        //有channel的话就复用连接
-        return channel;
+        return getChannelAsync(inetSocketAddress).get();
     }
+
     /**
-     * 连接到服务器获取 channel 对象
+     * 异步获取 Channel，从服务提供方的连接池中选择未完成请求最少的连接，没有可用连接时建立连接
      */
-    @SneakyThrows//偷偷扔了
-    public Channel doConnect(InetSocketAddress inetSocketAddress) throws ExecutionException, InterruptedException {
-        // 方式一，不用打印提示信息可以使用的方案
-        // sync() 同步等待异步connect连接成功
-//        Channel channel = bootstrap.connect(inetSocketAddress).sync().channel();
-        // 设置同步等待异步关闭完成
-//        channel.closeFuture().sync();
+    public CompletableFuture<Channel> getChannelAsync(InetSocketAddress inetSocketAddress) {
+        return channelProvider.acquire(inetSocketAddress, this::connect);
+    }
 
-        // 方式二，打印提示信息使用方案
+    /**
+     * 预先建立到服务提供方的所有连接
+     */
+    @Override
+    public CompletableFuture<Void> warmUp(String serverAddr, Integer port) {
+        return channelProvider.prewarm(new InetSocketAddress(serverAddr, port), this::connect);
+    }
+
+    /**
+     * 异步连接到服务器
+     */
+    private CompletableFuture<Channel> connect(InetSocketAddress inetSocketAddress) {
         CompletableFuture<Channel> completableFuture = new CompletableFuture<>();
         bootstrap.connect(inetSocketAddress).addListener((ChannelFutureListener) future -> {
             if (future.isSuccess()) {
                 log.debug("The client has successfully connected to server [{}]!", inetSocketAddress.toString());
+                // 添加异步关闭之后的操作
+                future.channel().closeFuture().addListener(closeFuture -> {
+                    log.info("The client has been disconnected from server [{}].", inetSocketAddress.toString());
+                });
                 completableFuture.complete(future.channel());
             } else {
-                throw new RpcException(String.format("The client failed to connect to [%s].", inetSocketAddress.toString()));
+                completableFuture.completeExceptionally(new RpcException(String.format(
+                        "The client failed to connect to [%s].", inetSocketAddress.toString()), future.cause()));
             }
         });
-        // 等待 future 完成返回结果
-        Channel channel = completableFuture.get();
-        // 添加异步关闭之后的操作
-        channel.closeFuture().addListener(future -> {
-            log.info("The client has been disconnected from server [{}].", inetSocketAddress.toString());
-        });
-        return channel;
+        return completableFuture;
+    }
+
+    /**
+     * 连接到服务器获取 channel 对象
+     */
+    public Channel doConnect(InetSocketAddress inetSocketAddress) throws ExecutionException, InterruptedException {
+        return connect(inetSocketAddress).get();
+    }
+
+    /**
+     * 获取合并刷新的统计信息，未开启合并刷新时没有数据
+     */
+    public FlushMetrics getFlushMetrics() {
+        return flushMetrics;
     }
 
     public void close() {
-        eventLoopGroup.shutdownGracefully();
+        // 共享的事件循环组在最后一个客户端关闭时才会被释放
+        if (closed.compareAndSet(false, true)) {
+            ClientEventLoopGroup.release();
+        }
     }
 }
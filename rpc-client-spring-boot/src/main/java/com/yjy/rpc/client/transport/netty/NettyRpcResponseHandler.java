@@ -4,41 +4,129 @@ import com.yjy.rpc.core.common.RpcResponse;
 import com.yjy.rpc.core.protocol.MessageHeader;
 import com.yjy.rpc.core.protocol.RpcMessage;
 import com.yjy.rpc.core.protocol.constant.ProtocolConstants;
+import com.yjy.rpc.core.protocol.enums.CompressionType;
 import com.yjy.rpc.core.protocol.enums.MessageType;
 import com.yjy.rpc.core.protocol.enums.SerializationType;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.ReferenceCountUtil;
-import io.netty.util.concurrent.Promise;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 public class NettyRpcResponseHandler  extends SimpleChannelInboundHandler<RpcMessage> {
 
     /**
-     * 存放未处理的响应请求
+     * 心跳消息使用的协议版本
      */
-    public static final Map<Integer, Promise<RpcMessage>> UNPROCESSED_RPC_RESPONSES = new ConcurrentHashMap<>();
+    private final byte protocolVersion;
+
+    /**
+     * 连接上未完成的请求，见 {@link PendingRequests}
+     */
+    private PendingRequests pendingRequests;
+
+    /**
+     * 等待连接恢复可写的请求，按加入顺序写出，请求完成时移出，只在 I/O 线程中访问
+     */
+    private final Set<Runnable> waitingWrites = new LinkedHashSet<>();
+
+    public NettyRpcResponseHandler() {
+        this(ProtocolConstants.VERSION);
+    }
+
+    /**
+     * @param protocolVersion 心跳消息使用的协议版本
+     */
+    public NettyRpcResponseHandler(byte protocolVersion) {
+        this.protocolVersion = protocolVersion;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        pendingRequests = PendingRequests.create(ctx.channel());
+        super.handlerAdded(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // 连接断开后不会再收到响应，立即让等待中的调用失败
+        pendingRequests.closeAll();
+        // 等待写出的请求已经随未完成请求一起失败
+        waitingWrites.clear();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        drainWaitingWrites(ctx.channel());
+        super.channelWritabilityChanged(ctx);
+    }
+
+    /**
+     * 连接可写时执行写操作，否则排队等到发送缓冲区降到低水位以下，只在 I/O 线程中调用。
+     * 排队期间请求超时或失败时立即移出队列，长时间不可写的连接上等待的请求数不会超过未完成的请求数
+     *
+     * @param channel 连接
+     * @param result  请求的结果
+     * @param write   写操作
+     */
+    void writeWhenWritable(Channel channel, CompletableFuture<?> result, Runnable write) {
+        waitingWrites.add(write);
+        result.whenComplete((response, cause) -> {
+            if (channel.eventLoop().inEventLoop()) {
+                waitingWrites.remove(write);
+            } else {
+                channel.eventLoop().execute(() -> waitingWrites.remove(write));
+            }
+        });
+        drainWaitingWrites(channel);
+    }
+
+    /**
+     * 等待连接恢复可写的请求数
+     */
+    int waitingWrites() {
+        return waitingWrites.size();
+    }
+
+    private void drainWaitingWrites(Channel channel) {
+        // 写操作可能重入本方法或移出其他请求，每次都重新取队首
+        while (channel.isWritable() && !waitingWrites.isEmpty()) {
+            Iterator<Runnable> iterator = waitingWrites.iterator();
+            Runnable write = iterator.next();
+            iterator.remove();
+            write.run();
+        }
+    }
+
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, RpcMessage msg) throws Exception {
         try{
             MessageType type = MessageType.parseByType(msg.getHeader().getMessageType());
             // 如果是 RpcRequest 请求
             if (type == MessageType.RESPONSE) {
-                int sequenceId = msg.getHeader().getSequenceId();
-                // 拿到还未执行完成的 promise 对象
-                Promise<RpcMessage> promise = UNPROCESSED_RPC_RESPONSES.remove(sequenceId);
+                long sequenceId = msg.getHeader().getSequenceId();
+                // 拿到还未完成的 future 对象
+                CompletableFuture<RpcMessage> future = pendingRequests.complete(sequenceId);
+                if (future == null) {
+                    // 请求已经超时或发送失败，丢弃迟到的响应
+                    log.debug("Discard the response of the completed request, sequence id: {}.", sequenceId);
+                    return;
+                }
                 Exception exception = ((RpcResponse) msg.getBody()).getExceptionValue();
                 if (exception == null) {
-                    promise.setSuccess(msg);
+                    future.complete(msg);
                 } else {
-                    promise.setFailure(exception);
+                    future.completeExceptionally(exception);
                 }
             }
             else if (type == MessageType.HEARTBEAT_RESPONSE) { // 如果是心跳检查请求
@@ -62,7 +150,8 @@ public class NettyRpcResponseHandler  extends SimpleChannelInboundHandler<RpcMes
                 // 长时间没有发送rpc请求，发一个心跳，保持连接
                 RpcMessage rpcMessage = new RpcMessage();
                 MessageHeader.builder().serializerType(SerializationType.KRYO.getType());
-                MessageHeader header = MessageHeader.build(SerializationType.KRYO.name());
+                MessageHeader header = MessageHeader.build(SerializationType.KRYO.name(), CompressionType.NONE.name(),
+                        protocolVersion);
                 header.setMessageType(MessageType.HEARTBEAT_REQUEST.getType());
                 rpcMessage.setHeader(header);
                 rpcMessage.setBody(ProtocolConstants.PING);
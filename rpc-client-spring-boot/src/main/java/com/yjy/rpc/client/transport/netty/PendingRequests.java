@@ -0,0 +1,202 @@
+package com.yjy.rpc.client.transport.netty;
+
+import com.yjy.rpc.core.exception.RpcException;
+import com.yjy.rpc.core.protocol.MessageHeader;
+import com.yjy.rpc.core.protocol.RpcMessage;
+import com.yjy.rpc.core.protocol.constant.ProtocolConstants;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 连接级别的未完成请求表：序列号 -- 等待响应的 future。
+ * <p>
+ * 序列号由每个连接单独分配，表以原始类型 long 为键，不装箱。超时由 JVM 内共用的 {@link HashedWheelTimer} 触发，
+ * 收到响应后取消；连接断开时立即以异常完成所有未完成的请求。表中只有正在等待响应的请求，内存随连接释放。
+ * <p>
+ * 注册请求的是调用线程，完成请求的是 I/O 线程或时间轮线程，表的读写都在同一把锁内进行，临界区只有一次哈希表操作。
+ */
+final class PendingRequests {
+
+    private static final AttributeKey<PendingRequests> KEY = AttributeKey.valueOf("rpc.pendingRequests");
+
+    /**
+     * 所有连接共用的时间轮，10ms 一格，守护线程
+     */
+    private static final class TimerHolder {
+        private static final HashedWheelTimer INSTANCE = new HashedWheelTimer(
+                new DefaultThreadFactory("rpc-client-timer", true), 10, TimeUnit.MILLISECONDS, 512);
+    }
+
+    private final Channel channel;
+
+    private final LongObjectHashMap<Pending> pending = new LongObjectHashMap<>();
+
+    /**
+     * 下一个序列号，只在锁内访问
+     */
+    private long nextId;
+
+    /**
+     * 未完成的请求数，锁内更新，供选择连接时无锁读取
+     */
+    private volatile int count;
+
+    /**
+     * 连接是否已经断开，断开后注册的请求直接失败
+     */
+    private boolean closed;
+
+    private PendingRequests(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * 为新建的连接创建未完成请求表
+     */
+    static PendingRequests create(Channel channel) {
+        PendingRequests requests = new PendingRequests(channel);
+        channel.attr(KEY).set(requests);
+        return requests;
+    }
+
+    /**
+     * 获取连接对应的未完成请求表
+     */
+    static PendingRequests get(Channel channel) {
+        return channel.attr(KEY).get();
+    }
+
+    /**
+     * 为请求分配连接内唯一的序列号并登记，超时后以 {@link TimeoutException} 完成 future
+     *
+     * @param message 请求消息，序列号会被改写
+     * @param future  等待响应的 future
+     * @param timeout 超时时间，单位毫秒，为 null 或不大于 0 表示一直等待
+     * @return 是否登记成功，连接已经断开时以异常完成 future 并返回 false
+     */
+    boolean register(RpcMessage message, CompletableFuture<RpcMessage> future, Integer timeout) {
+        MessageHeader header = message.getHeader();
+        // 版本 1 只传输低 4 字节
+        long mask = header.getVersion() == ProtocolConstants.VERSION_1 ? 0xFFFFFFFFL : -1L;
+        Pending entry = new Pending(future);
+        long id;
+        synchronized (this) {
+            if (closed) {
+                id = -1;
+            } else {
+                do {
+                    id = nextId++ & mask;
+                } while (pending.containsKey(id));
+                pending.put(id, entry);
+                count = pending.size();
+            }
+        }
+        if (id == -1) {
+            future.completeExceptionally(closedException());
+            return false;
+        }
+        header.setSequenceId(id);
+        if (timeout != null && timeout > 0) {
+            long sequenceId = id;
+            entry.timeout = TimerHolder.INSTANCE.newTimeout(t -> {
+                // 超时后移除未完成的请求，之后到达的响应直接丢弃
+                if (remove(sequenceId) != null) {
+                    future.completeExceptionally(new TimeoutException(String.format(
+                            "The Remote procedure call exceeded the specified timeout of %dms.", timeout)));
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * 收到响应，移除并返回等待的 future
+     *
+     * @return 等待响应的 future，请求已经超时或失败时返回 null
+     */
+    CompletableFuture<RpcMessage> complete(long sequenceId) {
+        Pending entry = remove(sequenceId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.timeout != null) {
+            entry.timeout.cancel();
+        }
+        return entry.future;
+    }
+
+    /**
+     * 请求发送失败，以异常完成 future
+     */
+    void fail(long sequenceId, Throwable cause) {
+        CompletableFuture<RpcMessage> future = complete(sequenceId);
+        if (future != null) {
+            future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * 连接断开，以异常完成所有未完成的请求，之后注册的请求直接失败
+     */
+    void closeAll() {
+        List<Pending> entries;
+        synchronized (this) {
+            closed = true;
+            entries = new ArrayList<>(pending.values());
+            pending.clear();
+            count = 0;
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        RpcException cause = closedException();
+        for (Pending entry : entries) {
+            if (entry.timeout != null) {
+                entry.timeout.cancel();
+            }
+            entry.future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * 未完成的请求数
+     */
+    int size() {
+        return count;
+    }
+
+    private synchronized Pending remove(long sequenceId) {
+        Pending entry = pending.remove(sequenceId);
+        count = pending.size();
+        return entry;
+    }
+
+    private RpcException closedException() {
+        return new RpcException(String.format("The connection to [%s] was closed before the response was received.",
+                channel.remoteAddress()));
+    }
+
+    private static final class Pending {
+
+        private final CompletableFuture<RpcMessage> future;
+
+        /**
+         * 超时任务，登记后才设置，可能在响应到达之后才可见，此时超时任务触发时已找不到请求
+         */
+        private volatile Timeout timeout;
+
+        Pending(CompletableFuture<RpcMessage> future) {
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.yjy.rpc.client.transport.netty;
+
+import com.yjy.rpc.core.exception.RpcException;
+import io.netty.channel.Channel;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ChannelProviderTest {
+
+    private static final int POOL_SIZE = 8;
+
+    private final InetSocketAddress address = InetSocketAddress.createUnresolved("127.0.0.1", 8080);
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private final Function<InetSocketAddress, CompletableFuture<Channel>> unreachable = address -> {
+        attempts.incrementAndGet();
+        CompletableFuture<Channel> future = new CompletableFuture<>();
+        future.completeExceptionally(new RpcException("Connection refused"));
+        return future;
+    };
+
+    @Test
+    public void failedRoundBacksOffOnce() throws Exception {
+        ChannelProvider provider = new ChannelProvider(POOL_SIZE);
+
+        assertFailed(provider.acquire(address, unreachable));
+        assertEquals(POOL_SIZE, attempts.get());
+
+        // 退避期间不再连接，所有槽位失败只计为一轮
+        String message = assertFailed(provider.acquire(address, unreachable));
+        assertEquals(POOL_SIZE, attempts.get());
+        assertTrue(message, message.contains(" 1 times in a row"));
+    }
+
+    @Test
+    public void backoffGrowsOneStepPerRound() throws Exception {
+        ChannelProvider provider = new ChannelProvider(POOL_SIZE);
+        for (int round = 1; round <= 3; round++) {
+            assertFailed(provider.acquire(address, unreachable));
+            String message = assertFailed(provider.acquire(address, unreachable));
+            assertTrue(message, message.contains(" " + round + " times in a row"));
+            // 等待退避结束，第 n 轮失败后的退避不超过 100ms * 2^(n-1)
+            TimeUnit.MILLISECONDS.sleep(100L << (round - 1));
+        }
+        assertEquals(3 * POOL_SIZE, attempts.get());
+    }
+
+    private static String assertFailed(CompletableFuture<Channel> future) throws InterruptedException {
+        try {
+            future.get();
+            fail("The endpoint should be unreachable.");
+            return null;
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RpcException);
+            return e.getCause().getMessage();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.yjy.rpc.client.transport.netty;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NettyRpcResponseHandlerTest {
+
+    private final NettyRpcResponseHandler handler = new NettyRpcResponseHandler();
+
+    private final EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+    @After
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void waitingWritesRunWhenWritable() {
+        blockWrites();
+        List<Integer> written = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            int index = i;
+            handler.writeWhenWritable(channel, new CompletableFuture<>(), () -> written.add(index));
+        }
+        assertTrue(written.isEmpty());
+        assertEquals(3, handler.waitingWrites());
+
+        channel.flushOutbound();
+
+        assertEquals(3, written.size());
+        assertEquals(Integer.valueOf(0), written.get(0));
+        assertEquals(Integer.valueOf(2), written.get(2));
+        assertEquals(0, handler.waitingWrites());
+    }
+
+    @Test
+    public void completedRequestsLeaveTheQueue() {
+        blockWrites();
+        List<CompletableFuture<Object>> results = new ArrayList<>();
+        List<Integer> written = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int index = i;
+            CompletableFuture<Object> result = new CompletableFuture<>();
+            results.add(result);
+            handler.writeWhenWritable(channel, result, () -> written.add(index));
+        }
+        assertEquals(100, handler.waitingWrites());
+
+        // 请求在不可写期间超时，立即移出队列
+        for (int i = 0; i < 99; i++) {
+            results.get(i).completeExceptionally(new TimeoutException());
+        }
+        assertEquals(1, handler.waitingWrites());
+
+        channel.flushOutbound();
+        assertEquals(1, written.size());
+        assertEquals(Integer.valueOf(99), written.get(0));
+    }
+
+    /**
+     * 写入未刷新的数据，使连接超过高水位变为不可写
+     */
+    private void blockWrites() {
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(8, 16));
+        channel.write(Unpooled.wrappedBuffer(new byte[32]));
+        assertFalse(channel.isWritable());
+    }
+}
@@ -0,0 +1,136 @@
+package com.yjy.rpc.client.transport.netty;
+
+import com.yjy.rpc.core.exception.RpcException;
+import com.yjy.rpc.core.protocol.MessageHeader;
+import com.yjy.rpc.core.protocol.RpcMessage;
+import com.yjy.rpc.core.protocol.constant.ProtocolConstants;
+import com.yjy.rpc.core.protocol.enums.CompressionType;
+import com.yjy.rpc.core.protocol.enums.SerializationType;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PendingRequestsTest {
+
+    private final EmbeddedChannel channel = new EmbeddedChannel();
+
+    private final PendingRequests pendingRequests = PendingRequests.create(channel);
+
+    @After
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void registerAndComplete() {
+        RpcMessage first = message(ProtocolConstants.VERSION_2);
+        RpcMessage second = message(ProtocolConstants.VERSION_2);
+        CompletableFuture<RpcMessage> firstFuture = new CompletableFuture<>();
+        CompletableFuture<RpcMessage> secondFuture = new CompletableFuture<>();
+
+        assertTrue(pendingRequests.register(first, firstFuture, null));
+        assertTrue(pendingRequests.register(second, secondFuture, null));
+        assertSame(pendingRequests, PendingRequests.get(channel));
+        assertEquals(2, pendingRequests.size());
+        long firstId = first.getHeader().getSequenceId();
+        long secondId = second.getHeader().getSequenceId();
+        assertNotEquals(firstId, secondId);
+
+        assertSame(secondFuture, pendingRequests.complete(secondId));
+        assertEquals(1, pendingRequests.size());
+        // 已经完成的请求不会重复返回
+        assertNull(pendingRequests.complete(secondId));
+        assertSame(firstFuture, pendingRequests.complete(firstId));
+        assertEquals(0, pendingRequests.size());
+    }
+
+    @Test
+    public void timeoutFailsAndRemovesRequest() throws Exception {
+        RpcMessage message = message(ProtocolConstants.VERSION_1);
+        CompletableFuture<RpcMessage> future = new CompletableFuture<>();
+        assertTrue(pendingRequests.register(message, future, 50));
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("The request should time out.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(0, pendingRequests.size());
+        // 超时之后到达的响应直接丢弃
+        assertNull(pendingRequests.complete(message.getHeader().getSequenceId()));
+    }
+
+    @Test
+    public void completedRequestDoesNotTimeOut() throws Exception {
+        RpcMessage message = message(ProtocolConstants.VERSION_2);
+        CompletableFuture<RpcMessage> future = new CompletableFuture<>();
+        assertTrue(pendingRequests.register(message, future, 50));
+
+        pendingRequests.complete(message.getHeader().getSequenceId()).complete(message);
+        TimeUnit.MILLISECONDS.sleep(200);
+
+        assertSame(message, future.getNow(null));
+        assertEquals(0, pendingRequests.size());
+    }
+
+    @Test
+    public void failCompletesExceptionally() {
+        RpcMessage message = message(ProtocolConstants.VERSION_2);
+        CompletableFuture<RpcMessage> future = new CompletableFuture<>();
+        assertTrue(pendingRequests.register(message, future, 0));
+
+        RpcException cause = new RpcException("write failed");
+        pendingRequests.fail(message.getHeader().getSequenceId(), cause);
+
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(0, pendingRequests.size());
+    }
+
+    @Test
+    public void closeAllFailsPendingAndLaterRequests() {
+        CompletableFuture<RpcMessage> first = new CompletableFuture<>();
+        CompletableFuture<RpcMessage> second = new CompletableFuture<>();
+        assertTrue(pendingRequests.register(message(ProtocolConstants.VERSION_2), first, 60_000));
+        assertTrue(pendingRequests.register(message(ProtocolConstants.VERSION_2), second, null));
+
+        pendingRequests.closeAll();
+
+        assertEquals(0, pendingRequests.size());
+        assertClosed(first);
+        assertClosed(second);
+        // 连接断开后登记的请求直接失败
+        CompletableFuture<RpcMessage> late = new CompletableFuture<>();
+        assertFalse(pendingRequests.register(message(ProtocolConstants.VERSION_2), late, null));
+        assertClosed(late);
+        assertEquals(0, pendingRequests.size());
+    }
+
+    private static void assertClosed(CompletableFuture<RpcMessage> future) {
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.join();
+        } catch (Exception e) {
+            assertTrue(e.getCause() instanceof RpcException);
+        }
+    }
+
+    private static RpcMessage message(byte version) {
+        RpcMessage message = new RpcMessage();
+        message.setHeader(MessageHeader.build(SerializationType.KRYO.name(), CompressionType.NONE.name(), version));
+        return message;
+    }
+}
@@ -0,0 +1,50 @@
+package com.yjy.rpc.core.codec;
+
+import com.yjy.rpc.core.protocol.constant.ProtocolConstants;
+import com.yjy.rpc.core.protocol.enums.CompressionType;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * 编解码参数，由客户端、服务端的配置构建，传给 {@link RpcFrameDecoder} 和 {@link SharableRpcMessageCodec}
+ */
+@Data
+@Builder
+public class CodecOptions {
+
+    /**
+     * 单个数据帧的最大长度
+     */
+    @Builder.Default
+    private int maxFrameLength = ProtocolConstants.DEFAULT_MAX_FRAME_LENGTH;
+
+    /**
+     * 分片重组后消息体的最大长度
+     */
+    @Builder.Default
+    private int maxMessageLength = ProtocolConstants.DEFAULT_MAX_MESSAGE_LENGTH;
+
+    /**
+     * 分片大小，消息体超过该大小时拆分为多个帧发送，0 表示不分片
+     */
+    @Builder.Default
+    private int chunkSize = ProtocolConstants.DEFAULT_CHUNK_SIZE;
+
+    /**
+     * 协议头未指定压缩算法时使用的默认压缩算法
+     */
+    @Builder.Default
+    private CompressionType compressType = CompressionType.DEFLATE;
+
+    /**
+     * 压缩阈值，消息体达到该大小才进行压缩
+     */
+    @Builder.Default
+    private int compressThreshold = ProtocolConstants.DEFAULT_COMPRESS_THRESHOLD;
+
+    /**
+     * 是否延迟反序列化请求消息体：解码时只解析协议头，消息体以 {@link EncodedBody} 的形式交给业务线程反序列化
+     */
+    @Builder.Default
+    private boolean lazyRequestBody = false;
+}
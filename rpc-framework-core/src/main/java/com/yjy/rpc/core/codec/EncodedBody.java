@@ -0,0 +1,76 @@
+package com.yjy.rpc.core.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * 未反序列化的消息体，持有引用帧的 ByteBuf 切片，以及反序列化所需的序列化算法和压缩算法。
+ * <p>
+ * 由 {@link SharableRpcMessageCodec} 在开启 {@link CodecOptions#isLazyRequestBody()} 时创建，
+ * I/O 线程只解析协议头，反序列化和解压放到业务线程中执行。持有者必须调用 {@link #decode(Class)} 或 {@link #release()}
+ * 之一释放缓冲区，两者都只能调用一次，且不能在多个线程中同时调用。
+ */
+public final class EncodedBody {
+
+    private final ByteBuf content;
+
+    private final byte serializerType;
+
+    private final byte compressType;
+
+    private final ByteBufAllocator alloc;
+
+    private final int maxMessageLength;
+
+    private boolean released;
+
+    EncodedBody(ByteBuf content, byte serializerType, byte compressType, ByteBufAllocator alloc,
+                int maxMessageLength) {
+        this.content = content;
+        this.serializerType = serializerType;
+        this.compressType = compressType;
+        this.alloc = alloc;
+        this.maxMessageLength = maxMessageLength;
+    }
+
+    /**
+     * 反序列化消息体，无论成功与否都会释放缓冲区
+     *
+     * @param clazz 消息体类型
+     * @return 反序列化后的对象
+     * @throws Exception 解压或反序列化失败
+     */
+    public <T> T decode(Class<T> clazz) throws Exception {
+        if (released) {
+            throw new IllegalStateException("The message body has been released.");
+        }
+        try {
+            return SharableRpcMessageCodec.decodeBody(alloc, content, serializerType, compressType,
+                    maxMessageLength, clazz);
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * 不反序列化，直接释放缓冲区，如请求被拒绝时
+     */
+    public void release() {
+        if (!released) {
+            released = true;
+            content.release();
+        }
+    }
+
+    /**
+     * 消息体的字节数（压缩后）
+     */
+    public int length() {
+        return content.readableBytes();
+    }
+
+    @Override
+    public String toString() {
+        return "EncodedBody(length=" + content.readableBytes() + ")";
+    }
+}
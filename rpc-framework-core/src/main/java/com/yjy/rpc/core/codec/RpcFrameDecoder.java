@@ -1,21 +1,113 @@
 package com.yjy.rpc.core.codec;
 
+import com.yjy.rpc.core.protocol.constant.ProtocolConstants;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * 粘包拆包编码器，使用固定长度的帧解码器，通过约定用定长字节表示接下来数据的长度。<p>
  * 消息头12字节+4字节（消息长度），消息体根据包头的消息长度，解决沾包
  * 非共享，保存了 ByteBuf 的状态信息
+ * <p>
+ * 根据协议头中的版本号区分两种帧格式：版本 1 交给 {@link LengthFieldBasedFrameDecoder} 按定长长度域拆包；
+ * 版本 2 的长度域为紧跟在 17 字节定长头部之后的变长整数，由本类解析。同一连接上两种版本的帧可以混用。
+ * <p>
+ * 带有 {@link ProtocolConstants#CHUNK_FLAG} 分片标记的帧会按序列号暂存，各分片的消息体以切片的形式追加到
+ * {@link CompositeByteBuf} 中，不会拷贝也不需要一次分配整块内存。收到最后一个分片后，拼上清除了分片标记、
+ * 回填了总长度的协议头，作为一个完整的帧交给后续的编解码器，编解码器无需感知分片的存在。
+ * 同一连接上同时重组的消息数以及暂存的总字节数都有上限，超过时丢弃所有未完成的消息并抛出异常。
  */
 public class RpcFrameDecoder extends LengthFieldBasedFrameDecoder {
+
+    /**
+     * 版本号在协议头中的偏移量
+     */
+    private static final int VERSION_OFFSET = 4;
+
+    /**
+     * 版本 1 协议头中消息类型、序列号、长度的偏移量
+     */
+    private static final int V1_MESSAGE_TYPE_OFFSET = 6;
+
+    private static final int V1_SEQUENCE_ID_OFFSET = 8;
+
+    private static final int V1_LENGTH_OFFSET = 12;
+
+    /**
+     * 版本 2 协议头中消息类型、序列号的偏移量
+     */
+    private static final int V2_MESSAGE_TYPE_OFFSET = 7;
+
+    private static final int V2_SEQUENCE_ID_OFFSET = 9;
+
+    /**
+     * 同一连接上同时重组的消息数上限
+     */
+    private static final int MAX_PENDING_MESSAGES = 1024;
+
+    /**
+     * 单个数据帧的最大长度
+     */
+    private final int maxFrameLength;
+
+    /**
+     * 分片重组后消息体的最大长度，同时也是同一连接上所有正在重组的消息暂存的总字节数上限
+     */
+    private final int maxMessageLength;
+
+    /**
+     * 序列号 -- 正在重组的消息
+     */
+    private final Map<Long, ChunkedMessage> pendingMessages = new HashMap<>();
+
+    /**
+     * 所有正在重组的消息已暂存的字节数
+     */
+    private long pendingBytes;
+
     /**
      * 得到当前约定协议的帧解码器，
      * <pre>{@code
-     *    this.RpcFrameDecoder(1024, 12, 4)
+     *    this.RpcFrameDecoder(ProtocolConstants.DEFAULT_MAX_FRAME_LENGTH)
      * }</pre>
-     * 引用：{@link RpcFrameDecoder#RpcFrameDecoder(int, int, int)}
+     * 引用：{@link RpcFrameDecoder#RpcFrameDecoder(int)}
      */
     public RpcFrameDecoder() {
-        this(1024, 12, 4);
+        this(ProtocolConstants.DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param maxFrameLength 单个数据帧的最大长度
+     */
+    public RpcFrameDecoder(int maxFrameLength) {
+        this(maxFrameLength, ProtocolConstants.DEFAULT_MAX_MESSAGE_LENGTH);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param maxFrameLength   单个数据帧的最大长度
+     * @param maxMessageLength 分片重组后消息体的最大长度
+     */
+    public RpcFrameDecoder(int maxFrameLength, int maxMessageLength) {
+        this(maxFrameLength, V1_LENGTH_OFFSET, 4, maxMessageLength);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param options 编解码参数
+     */
+    public RpcFrameDecoder(CodecOptions options) {
+        this(options.getMaxFrameLength(), options.getMaxMessageLength());
     }
 
     /**
@@ -26,6 +118,163 @@ public class RpcFrameDecoder extends LengthFieldBasedFrameDecoder {
      * @param lengthFieldLength 长度域所占的字节数
      */
     public RpcFrameDecoder(int maxFrameLength, int lengthFieldOffset, int lengthFieldLength) {
+        this(maxFrameLength, lengthFieldOffset, lengthFieldLength, ProtocolConstants.DEFAULT_MAX_MESSAGE_LENGTH);
+    }
+
+    private RpcFrameDecoder(int maxFrameLength, int lengthFieldOffset, int lengthFieldLength, int maxMessageLength) {
         super(maxFrameLength, lengthFieldOffset, lengthFieldLength);
+        this.maxFrameLength = maxFrameLength;
+        this.maxMessageLength = maxMessageLength;
+    }
+
+    @Override
+    protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+        if (in.readableBytes() <= VERSION_OFFSET) {
+            return null;
+        }
+        boolean v2 = in.getByte(in.readerIndex() + VERSION_OFFSET) == ProtocolConstants.VERSION_2;
+        // 版本 1 以及无法识别的版本都按版本 1 拆包，版本号由编解码器校验
+        ByteBuf frame = v2 ? decodeV2Frame(in) : (ByteBuf) super.decode(ctx, in);
+        if (frame == null) {
+            return null;
+        }
+        return v2 ? reassemble(ctx, frame, V2_MESSAGE_TYPE_OFFSET, ProtocolConstants.V2_FIXED_HEADER_LENGTH, true)
+                : reassemble(ctx, frame, V1_MESSAGE_TYPE_OFFSET, V1_LENGTH_OFFSET, false);
+    }
+
+    /**
+     * 解析版本 2 的数据帧：17 字节定长头部 + 变长长度域 + 附加信息和消息体
+     */
+    private ByteBuf decodeV2Frame(ByteBuf in) {
+        int readerIndex = in.readerIndex();
+        if (in.readableBytes() <= ProtocolConstants.V2_FIXED_HEADER_LENGTH) {
+            return null;
+        }
+        long lengthField = VarInts.peek(in, readerIndex + ProtocolConstants.V2_FIXED_HEADER_LENGTH);
+        if (lengthField < 0) {
+            return null;
+        }
+        long frameLength = ProtocolConstants.V2_FIXED_HEADER_LENGTH + (lengthField >>> 32) + (lengthField & 0xFFFFFFFFL);
+        if (frameLength > maxFrameLength) {
+            // 长度不可信，丢弃已收到的数据，由异常处理关闭连接
+            in.skipBytes(in.readableBytes());
+            throw new TooLongFrameException(String.format("The frame length %d exceeds the max length %d.",
+                    frameLength, maxFrameLength));
+        }
+        if (in.readableBytes() < frameLength) {
+            return null;
+        }
+        return in.readRetainedSlice((int) frameLength);
+    }
+
+    /**
+     * 重组分片消息
+     *
+     * @param frame             完整的数据帧
+     * @param messageTypeOffset 消息类型的偏移量
+     * @param prefixLength      长度域之前的协议头长度
+     * @param v2                是否为版本 2
+     * @return 完整的消息，分片未收齐时返回 null
+     */
+    private ByteBuf reassemble(ChannelHandlerContext ctx, ByteBuf frame, int messageTypeOffset, int prefixLength,
+                               boolean v2) {
+        int readerIndex = frame.readerIndex();
+        byte messageType = frame.getByte(readerIndex + messageTypeOffset);
+        boolean hasMore = (messageType & ProtocolConstants.CHUNK_FLAG) != 0;
+        // 绝大多数消息不分片，直接返回
+        if (!hasMore && pendingMessages.isEmpty()) {
+            return frame;
+        }
+        long sequenceId = v2 ? frame.getLong(readerIndex + V2_SEQUENCE_ID_OFFSET)
+                : frame.getUnsignedInt(readerIndex + V1_SEQUENCE_ID_OFFSET);
+        ChunkedMessage message = pendingMessages.get(sequenceId);
+        if (message == null) {
+            if (!hasMore) {
+                return frame;
+            }
+            if (pendingMessages.size() >= MAX_PENDING_MESSAGES) {
+                frame.release();
+                releasePendingMessages();
+                throw new TooLongFrameException(String.format(
+                        "The number of chunked messages in progress exceeds the limit %d.", MAX_PENDING_MESSAGES));
+            }
+            // 第一个分片，复制长度域之前的协议头并清除分片标记
+            ByteBuf prefix = ctx.alloc().buffer(prefixLength + VarInts.MAX_SIZE);
+            prefix.writeBytes(frame, readerIndex, prefixLength);
+            prefix.setByte(messageTypeOffset, messageType & ~ProtocolConstants.CHUNK_FLAG);
+            message = new ChunkedMessage(prefix, ctx.alloc().compositeBuffer(Integer.MAX_VALUE));
+            pendingMessages.put(sequenceId, message);
+        }
+
+        int payloadOffset = v2 ? prefixLength + (int) (VarInts.peek(frame, readerIndex + prefixLength) >>> 32)
+                : ProtocolConstants.HEADER_LENGTH;
+        int chunkLength = frame.readableBytes() - payloadOffset;
+        if ((long) message.payload.readableBytes() + chunkLength > maxMessageLength) {
+            pendingMessages.remove(sequenceId);
+            pendingBytes -= message.payload.readableBytes();
+            message.release();
+            frame.release();
+            throw new TooLongFrameException(String.format("The chunked message %d exceeds the max length %d.",
+                    sequenceId, maxMessageLength));
+        }
+        if (pendingBytes + chunkLength > maxMessageLength) {
+            // 对端同时打开大量分片消息，暂存的总字节数超过上限，丢弃所有消息，由异常处理关闭连接
+            frame.release();
+            releasePendingMessages();
+            throw new TooLongFrameException(String.format(
+                    "The chunked messages in progress exceed the max length %d.", maxMessageLength));
+        }
+        pendingBytes += chunkLength;
+        message.payload.addComponent(true, frame.retainedSlice(readerIndex + payloadOffset, chunkLength));
+        frame.release();
+        if (hasMore) {
+            return null;
+        }
+
+        // 最后一个分片，写入总长度，协议头放到最前面
+        pendingMessages.remove(sequenceId);
+        int length = message.payload.readableBytes();
+        pendingBytes -= length;
+        if (v2) {
+            VarInts.write(message.prefix, length);
+        } else {
+            message.prefix.writeInt(length);
+        }
+        message.payload.addComponent(true, 0, message.prefix);
+        return message.payload;
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        // 连接关闭时释放未重组完成的消息
+        releasePendingMessages();
+    }
+
+    private void releasePendingMessages() {
+        for (ChunkedMessage message : pendingMessages.values()) {
+            message.release();
+        }
+        pendingMessages.clear();
+        pendingBytes = 0;
+    }
+
+    /**
+     * 正在重组的分片消息：长度域之前的协议头 + 已收到的消息体
+     */
+    private static final class ChunkedMessage {
+
+        private final ByteBuf prefix;
+
+        private final CompositeByteBuf payload;
+
+        ChunkedMessage(ByteBuf prefix, CompositeByteBuf payload) {
+            this.prefix = prefix;
+            this.payload = payload;
+        }
+
+        void release() {
+            prefix.release();
+            payload.release();
+        }
     }
 }
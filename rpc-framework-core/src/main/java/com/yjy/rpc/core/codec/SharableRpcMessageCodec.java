@@ -1,141 +1,471 @@
 package com.yjy.rpc.core.codec;
 
+import com.yjy.rpc.core.compress.Compression;
+import com.yjy.rpc.core.compress.CompressionFactory;
 import com.yjy.rpc.core.common.RpcRequest;
 import com.yjy.rpc.core.common.RpcResponse;
 import com.yjy.rpc.core.protocol.MessageHeader;
 import com.yjy.rpc.core.protocol.RpcMessage;
 import com.yjy.rpc.core.protocol.constant.ProtocolConstants;
+import com.yjy.rpc.core.protocol.enums.CompressionType;
 import com.yjy.rpc.core.protocol.enums.MessageType;
-import com.yjy.rpc.core.protocol.enums.SerializationType;
 import com.yjy.rpc.core.serialization.Serialization;
 import com.yjy.rpc.core.serialization.SerializationFactory;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
 import io.netty.handler.codec.MessageToMessageCodec;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+
 /**
  *  channel发送和接收rpcMessage都需要编码解码
  * 可共享的 Rpc 消息编码解码器，使用此编解码器必须配合 {@link com.yjy.rpc.core.codec.RpcFrameDecoder} 进行使用，
  * 以保证得到完整的数据包。不同于 {@link io.netty.handler.codec.ByteToMessageCodec} 的编解码器，共享编解码器无需
  * 保存 ByteBuf 的状态信息。
  * <p>
- * 消息协议：
+ * 消息协议（版本 1）：
  * <pre>
  *   --------------------------------------------------------------------
- *  | 魔数 (4byte) | 版本号 (1byte)  | 序列化算法 (1byte) | 消息类型 (1byte) |
+ *  | 魔数 (4byte) | 版本号 (1byte)  | 压缩算法 + 序列化算法 (1byte) | 消息类型 (1byte) |
  *  -------------------------------------------------------------------
  *  |    状态类型 (1byte)  |    消息序列号 (4byte)   |    消息长度 (4byte)   |
  *  --------------------------------------------------------------------
  *  |                        消息内容 (不固定长度)                         |
  *  -------------------------------------------------------------------
  * </pre>
+ * 消息协议（版本 2）：
+ * <pre>
+ *   --------------------------------------------------------------------
+ *  | 魔数 (4byte) | 版本号 (1byte)  | 序列化算法 (1byte)  | 压缩算法 (1byte) |
+ *  -------------------------------------------------------------------
+ *  |  消息类型 (1byte)  |  状态类型 (1byte)  |     消息序列号 (8byte)        |
+ *  --------------------------------------------------------------------
+ *  |  消息长度 (varint)  |  附加信息个数 (varint)  | 附加信息 key/value ...  |
+ *  --------------------------------------------------------------------
+ *  |                        消息内容 (不固定长度)                         |
+ *  -------------------------------------------------------------------
+ * </pre>
+ * 编码时按协议头中的版本号选择格式，解码时两种版本都能识别，响应沿用请求的版本。
+ * 消息体达到压缩阈值时先压缩，版本 1 将压缩算法写入序列化算法字节的高 4 位，版本 2 使用单独的字节。
+ * 消息体超过分片大小时拆分为多个帧发送（见 {@link ProtocolConstants#CHUNK_FLAG}），由 {@link RpcFrameDecoder} 负责重组。
+ * 开启 {@link CodecOptions#isLazyRequestBody()} 后，请求消息体不在 I/O 线程中反序列化，而是以 {@link EncodedBody} 交给后续处理器。
  */
 public class SharableRpcMessageCodec extends MessageToMessageCodec<ByteBuf, RpcMessage> {
+    /**
+     * 版本 1 协议头部固定长度：魔数 4 + 版本号 1 + 序列化算法 1 + 消息类型 1 + 状态 1 + 序列号 4 + 长度 4
+     */
+    private static final int HEADER_LENGTH = ProtocolConstants.HEADER_LENGTH;
+
+    /**
+     * 版本 2 协议头部定长部分：魔数 4 + 版本号 1 + 序列化算法 1 + 压缩算法 1 + 消息类型 1 + 状态 1 + 序列号 8
+     */
+    private static final int V2_FIXED_HEADER_LENGTH = ProtocolConstants.V2_FIXED_HEADER_LENGTH;
+
+    /**
+     * 消息体超过该大小时拆分为多个帧发送，0 表示不分片
+     */
+    private final int chunkSize;
+
+    /**
+     * 协议头未指定压缩算法时使用的默认压缩算法
+     */
+    private final byte compressType;
+
+    /**
+     * 压缩阈值，消息体达到该大小才进行压缩
+     */
+    private final int compressThreshold;
+
+    /**
+     * 消息体的初始容量估计值，取最近编码消息的平滑值，减少 ByteBuf 扩容时的拷贝。
+     * 多线程下的竞争写入只影响估计的准确度，不影响正确性
+     */
+    private int bodySizeHint = 256;
+
+    /**
+     * 是否延迟反序列化请求消息体，见 {@link EncodedBody}
+     */
+    private final boolean lazyRequestBody;
+
+    /**
+     * 消息体解压后的最大长度
+     */
+    private final int maxMessageLength;
+
+    public SharableRpcMessageCodec() {
+        this(CodecOptions.builder().build());
+    }
+
+    /**
+     * @param chunkSize 分片大小，消息体超过该大小时拆分为多个帧发送，0 表示不分片
+     */
+    public SharableRpcMessageCodec(int chunkSize) {
+        this(CodecOptions.builder().chunkSize(chunkSize).build());
+    }
+
+    /**
+     * @param options 编解码参数
+     */
+    public SharableRpcMessageCodec(CodecOptions options) {
+        this.chunkSize = options.getChunkSize();
+        this.compressType = options.getCompressType().getType();
+        this.compressThreshold = options.getCompressThreshold();
+        this.lazyRequestBody = options.isLazyRequestBody();
+        this.maxMessageLength = options.getMaxMessageLength();
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, RpcMessage msg, List<Object> out) throws Exception {
-        ByteBuf buf = ctx.alloc().buffer();
         MessageHeader header = msg.getHeader();
+        boolean v2 = header.getVersion() == ProtocolConstants.VERSION_2;
+        // 协议头指定的压缩算法优先（NONE 表示明确不压缩），未指定时使用默认压缩算法
+        byte compressType = header.getCompressType() == ProtocolConstants.COMPRESS_TYPE_DEFAULT
+                ? this.compressType : header.getCompressType();
+        // 版本 1 的压缩算法位于序列化算法字节的高 4 位，未升级的对端会当作未知的序列化算法，因此只有版本 2 压缩
+        Compression compression = v2 && compressType != CompressionType.NONE.getType()
+                ? CompressionFactory.getCompression(compressType) : null;
+        // 版本 2 的长度域是变长的，先按最大长度为协议头预留空间，消息体写完后再把协议头倒着填进预留区域的末尾
+        int attachmentsLength = v2 ? attachmentsLength(header.getAttachments()) : 0;
+        int reserved = v2 ? V2_FIXED_HEADER_LENGTH + VarInts.MAX_SIZE + attachmentsLength : HEADER_LENGTH;
+        ByteBuf buf = allocate(ctx, compression, reserved + bodySizeHint);
+        try {
+            buf.writerIndex(reserved);
+            // 获取序列化算法
+            Serialization serialization = SerializationFactory.getSerialization(header.getSerializerType());
+            // 不固定字节 消息内容，直接序列化到 ByteBuf 中，不再经过中间字节数组
+            serialization.serialize(msg.getBody(), new ByteBufOutputStream(buf));
+            int bodyLength = buf.writerIndex() - reserved;
+            bodySizeHint = (bodySizeHint + bodyLength) >>> 1;
+
+            // 消息体达到阈值时压缩
+            if (compression != null && compressThreshold >= 0 && bodyLength >= compressThreshold) {
+                ByteBuf compressed = compress(ctx, buf, reserved, compression);
+                if (compressed != buf) {
+                    buf = compressed;
+                    bodyLength = buf.writerIndex() - reserved;
+                } else {
+                    compressType = CompressionType.NONE.getType();
+                }
+            } else {
+                compressType = CompressionType.NONE.getType();
+            }
+
+            // 回填消息长度，版本 2 的长度包含附加信息
+            int length = bodyLength + attachmentsLength;
+            header.setLength(length);
+            int headerLength = v2 ? V2_FIXED_HEADER_LENGTH + VarInts.size(length) + attachmentsLength : HEADER_LENGTH;
+            int start = reserved - headerLength;
+            ByteBuf headerBuf = buf.slice(start, headerLength).writerIndex(0);
+            if (v2) {
+                writeV2Header(headerBuf, header, compressType, length);
+            } else {
+                writeV1Header(headerBuf, header, compressType, length);
+            }
+            buf.readerIndex(start);
+
+            // 传递到下一个出站处理器
+            if (chunkSize > 0 && length > chunkSize) {
+                writeChunks(ctx, buf, out, v2, length);
+            } else {
+                out.add(buf);
+            }
+        } catch (Throwable e) {
+            buf.release();
+            throw e;
+        }
+    }
+
+    private static void writeV1Header(ByteBuf buf, MessageHeader header, byte compressType, int length) {
+        // 4字节 魔数
+        buf.writeBytes(header.getMagicNum());
+        // 1字节 版本号
+        buf.writeByte(header.getVersion());
+        // 1字节 序列化算法（低 4 位）+ 压缩算法（高 4 位）
+        buf.writeByte(header.getSerializerType() | compressType << 4);
+        // 1字节 消息类型
+        buf.writeByte(header.getMessageType());
+        // 1字节 消息状态
+        buf.writeByte(header.getMessageStatus());
+        // 4字节 消息序列号
+        buf.writeInt((int) header.getSequenceId());
+        // 4字节 消息内容长度
+        buf.writeInt(length);
+    }
+
+    private static void writeV2Header(ByteBuf buf, MessageHeader header, byte compressType, int length) {
         // 4字节 魔数
         buf.writeBytes(header.getMagicNum());
         // 1字节 版本号
         buf.writeByte(header.getVersion());
         // 1字节 序列化算法
         buf.writeByte(header.getSerializerType());
+        // 1字节 压缩算法
+        buf.writeByte(compressType);
         // 1字节 消息类型
         buf.writeByte(header.getMessageType());
         // 1字节 消息状态
         buf.writeByte(header.getMessageStatus());
-        // 4字节 消息序列号
-        buf.writeInt(header.getSequenceId());
+        // 8字节 消息序列号
+        buf.writeLong(header.getSequenceId());
+        // 变长 消息长度（附加信息 + 消息内容）
+        VarInts.write(buf, length);
+        // 变长 附加信息
+        Map<String, String> attachments = header.getAttachments();
+        if (attachments == null || attachments.isEmpty()) {
+            VarInts.write(buf, 0);
+            return;
+        }
+        VarInts.write(buf, attachments.size());
+        for (Map.Entry<String, String> entry : attachments.entrySet()) {
+            writeString(buf, entry.getKey());
+            writeString(buf, entry.getValue());
+        }
+    }
 
-        // 取出消息体
-        Object body = msg.getBody();
-        // 获取序列化算法
+    /**
+     * 计算附加信息编码后的字节数
+     */
+    private static int attachmentsLength(Map<String, String> attachments) {
+        if (attachments == null || attachments.isEmpty()) {
+            return VarInts.size(0);
+        }
+        int length = VarInts.size(attachments.size());
+        for (Map.Entry<String, String> entry : attachments.entrySet()) {
+            length += stringLength(entry.getKey()) + stringLength(entry.getValue());
+        }
+        return length;
+    }
 
-        Serialization serialization = SerializationFactory
-                .getSerialization(SerializationType.parseByType(header.getSerializerType()));
-        // 进行序列化
-        byte[] bytes = serialization.serialize(body);
-        // 设置消息体长度
-        header.setLength(bytes.length);
+    private static int stringLength(String value) {
+        int length = value == null ? 0 : ByteBufUtil.utf8Bytes(value);
+        return VarInts.size(length) + length;
+    }
 
-        // 4字节 消息内容长度
-        buf.writeInt(header.getLength());
+    private static void writeString(ByteBuf buf, String value) {
+        if (value == null) {
+            VarInts.write(buf, 0);
+            return;
+        }
+        int length = ByteBufUtil.utf8Bytes(value);
+        VarInts.write(buf, length);
+        // 协议头写在预留区域的切片中，只能按实际长度预留空间
+        ByteBufUtil.reserveAndWriteUtf8(buf, value, length);
+    }
 
-        // 不固定字节 消息内容字节数组
-        buf.writeBytes(bytes);
+    private static String readString(ByteBuf buf, int limit) {
+        int length = VarInts.read(buf);
+        if (length < 0 || length > limit - buf.readerIndex()) {
+            throw new CorruptedFrameException("Invalid attachment length " + length);
+        }
+        String value = buf.toString(buf.readerIndex(), length, StandardCharsets.UTF_8);
+        buf.skipBytes(length);
+        return value;
+    }
+
+    /**
+     * 压缩消息体，返回预留了同样大小协议头空间的新缓冲区，原缓冲区被释放。压缩后没有变小则原样返回
+     *
+     * @param reserved 消息体之前为协议头预留的字节数
+     */
+    private ByteBuf compress(ChannelHandlerContext ctx, ByteBuf buf, int reserved, Compression compression) {
+        int bodyLength = buf.writerIndex() - reserved;
+        ByteBuf compressed = allocate(ctx, compression, reserved + (bodyLength >>> 1));
+        try {
+            compressed.writerIndex(reserved);
+            compression.compress(buf.slice(reserved, bodyLength), compressed);
+        } catch (Throwable e) {
+            compressed.release();
+            throw e;
+        }
+        if (compressed.writerIndex() >= buf.writerIndex()) {
+            compressed.release();
+            return buf;
+        }
+        buf.release();
+        return compressed;
+    }
 
-        // 传递到下一个出站处理器
-        out.add(buf);
+    private static ByteBuf allocate(ChannelHandlerContext ctx, Compression compression, int initialCapacity) {
+        return allocate(ctx.alloc(), compression, initialCapacity);
+    }
+
+    private static ByteBuf allocate(ByteBufAllocator alloc, Compression compression, int initialCapacity) {
+        return compression != null && compression.preferHeapBuffer()
+                ? alloc.heapBuffer(initialCapacity) : alloc.ioBuffer(initialCapacity);
+    }
+
+    /**
+     * 将编码好的消息拆分为多个帧：每一帧复制一份长度域之前的协议头并写入本帧长度，消息体以切片的形式引用原缓冲区，
+     * 不产生拷贝。版本 2 的附加信息随第一帧发送。除最后一帧外，消息类型都带有 {@link ProtocolConstants#CHUNK_FLAG} 标记
+     *
+     * @param length 长度域之后的字节数
+     */
+    private void writeChunks(ChannelHandlerContext ctx, ByteBuf buf, List<Object> out, boolean v2, int length) {
+        int readerIndex = buf.readerIndex();
+        int prefixLength = v2 ? V2_FIXED_HEADER_LENGTH : HEADER_LENGTH - 4;
+        int messageTypeOffset = v2 ? 7 : 6;
+        int payloadIndex = readerIndex + (v2 ? prefixLength + VarInts.size(length) : HEADER_LENGTH);
+        byte messageType = buf.getByte(readerIndex + messageTypeOffset);
+        for (int offset = 0; offset < length; offset += chunkSize) {
+            int size = Math.min(chunkSize, length - offset);
+            boolean last = offset + size == length;
+            ByteBuf header = ctx.alloc().ioBuffer(prefixLength + VarInts.MAX_SIZE);
+            header.writeBytes(buf, readerIndex, prefixLength);
+            header.setByte(messageTypeOffset, last ? messageType : messageType | ProtocolConstants.CHUNK_FLAG);
+            if (v2) {
+                VarInts.write(header, size);
+            } else {
+                header.writeInt(size);
+            }
+            out.add(header);
+            out.add(buf.retainedSlice(payloadIndex + offset, size));
+        }
+        buf.release();
     }
+
     //netty 接收信息将 ByteBuf 对象解码成 RpcMessage 对象
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
-        // 4字节 魔数
+        // 4字节 魔数，直接在 ByteBuf 上逐字节比较，不再拷贝出来
         int len = ProtocolConstants.MAGIC_NUM.length;
-        byte[] magicNum = new byte[len];
-        msg.readBytes(magicNum, 0, len);
+        int readerIndex = msg.readerIndex();
         // 判断魔数是否正确，不正确表示非协议请求，不进行处理,判断接收的一个新的包最前面四个byte是否时yrpc
         for (int i = 0; i < len; i++) {
-            if (magicNum[i] != ProtocolConstants.MAGIC_NUM[i]) {
-                throw new IllegalArgumentException("Unknown magic code: " + Arrays.toString(magicNum));
+            if (msg.getByte(readerIndex + i) != ProtocolConstants.MAGIC_NUM[i]) {
+                throw new IllegalArgumentException("Unknown magic code: " + ByteBufUtil.hexDump(msg, readerIndex, len));
             }
         }
+        msg.skipBytes(len);
 
-        // 1字节 版本号
+        // 1字节 版本号，两种版本都能解码
         byte version = msg.readByte();
-        // 检查版本号是否一致
-        if (version != ProtocolConstants.VERSION) {
+        byte serializeType;
+        byte compressType;
+        byte messageType;
+        byte messageStatus;
+        long sequenceId;
+        int length;
+        int payloadEnd;
+        Map<String, String> attachments = null;
+        if (version == ProtocolConstants.VERSION_1) {
+            // 1字节 序列化算法（低 4 位）+ 压缩算法（高 4 位）
+            byte serializeAndCompressType = msg.readByte();
+            serializeType = (byte) (serializeAndCompressType & 0x0F);
+            compressType = (byte) ((serializeAndCompressType >> 4) & 0x0F);
+            // 1字节 消息类型
+            messageType = msg.readByte();
+            // 1字节 消息状态
+            messageStatus = msg.readByte();
+            // 4字节 消息序列号，按无符号数读取
+            sequenceId = msg.readUnsignedInt();
+            // 4字节 长度
+            length = msg.readInt();
+            payloadEnd = msg.readerIndex() + length;
+        } else if (version == ProtocolConstants.VERSION_2) {
+            // 1字节 序列化算法
+            serializeType = msg.readByte();
+            // 1字节 压缩算法
+            compressType = msg.readByte();
+            // 1字节 消息类型
+            messageType = msg.readByte();
+            // 1字节 消息状态
+            messageStatus = msg.readByte();
+            // 8字节 消息序列号
+            sequenceId = msg.readLong();
+            // 变长 长度（附加信息 + 消息内容）
+            length = VarInts.read(msg);
+            if (length < 0 || length > msg.readableBytes()) {
+                throw new CorruptedFrameException("Invalid payload length " + length);
+            }
+            payloadEnd = msg.readerIndex() + length;
+            // 变长 附加信息，数量来自对端，按剩余字节校验后再分配，每项至少占 2 字节（键、值的长度）
+            int size = VarInts.read(msg);
+            if (size < 0 || size > (payloadEnd - msg.readerIndex()) >> 1) {
+                throw new CorruptedFrameException("Invalid attachment count " + size);
+            }
+            if (size > 0) {
+                attachments = new LinkedHashMap<>(size << 1);
+                for (int i = 0; i < size; i++) {
+                    attachments.put(readString(msg, payloadEnd), readString(msg, payloadEnd));
+                }
+            }
+        } else {
             throw new IllegalArgumentException("The version isn't compatible " + version);
         }
+        int bodyLength = payloadEnd - msg.readerIndex();
+        if (bodyLength < 0) {
+            throw new CorruptedFrameException("The attachments exceed the payload length " + length);
+        }
 
-        // 1字节 序列化算法
-        byte serializeType = msg.readByte();
-        // 1字节 消息类型
-        byte messageType = msg.readByte();
-        // 1字节 消息状态
-        byte messageStatus = msg.readByte();
-        // 4字节 消息序列号
-        int sequenceId = msg.readInt();
-        // 4字节 长度
-        int length = msg.readInt();
-
-        byte[] bytes = new byte[length];
-        msg.readBytes(bytes, 0, length);
-
-        // 构建协议头部信息
-        MessageHeader header = MessageHeader.builder()
-                .magicNum(magicNum)
-                .version(version)
-                .serializerType(serializeType)
-                .messageType(messageType)
-                .sequenceId(sequenceId)
-                .messageStatus(messageStatus)
-                .length(length).build();
+        // 构建协议头部信息，魔数已校验，直接复用常量数组
+        MessageHeader header = new MessageHeader(ProtocolConstants.MAGIC_NUM, version, serializeType,
+                compressType, messageType, messageStatus, sequenceId, length, attachments);
 
-        // 获取反序列化算法
-        Serialization serialization = SerializationFactory
-                .getSerialization(SerializationType.parseByType(serializeType));
         // 获取消息枚举类型
         MessageType type = MessageType.parseByType(messageType);
         RpcMessage protocol = new RpcMessage();
         protocol.setHeader(header);
-        if (type == MessageType.REQUEST) {
-            // 进行反序列化
-            RpcRequest request = serialization.deserialize(RpcRequest.class, bytes);
-            protocol.setBody(request);
+        if (lazyRequestBody && type == MessageType.REQUEST) {
+            // 请求消息体保留为引用帧的切片，由业务线程反序列化，I/O 线程不做反序列化和解压
+            protocol.setBody(new EncodedBody(msg.retainedSlice(msg.readerIndex(), bodyLength), serializeType,
+                    compressType, ctx.alloc(), maxMessageLength));
+        } else if (type == MessageType.REQUEST) {
+            protocol.setBody(decodeBody(ctx.alloc(), msg.slice(msg.readerIndex(), bodyLength), serializeType,
+                    compressType, maxMessageLength, RpcRequest.class));
         } else if (type == MessageType.RESPONSE) {
-            // 进行反序列化
-            RpcResponse response = serialization.deserialize(RpcResponse.class, bytes);
-            protocol.setBody(response);
+            protocol.setBody(decodeBody(ctx.alloc(), msg.slice(msg.readerIndex(), bodyLength), serializeType,
+                    compressType, maxMessageLength, RpcResponse.class));
         } else if (type == MessageType.HEARTBEAT_REQUEST || type == MessageType.HEARTBEAT_RESPONSE) {
-            String message = serialization.deserialize(String.class, bytes);
-            protocol.setBody(message);
+            protocol.setBody(decodeBody(ctx.alloc(), msg.slice(msg.readerIndex(), bodyLength), serializeType,
+                    compressType, maxMessageLength, String.class));
         }
+        // 序列化算法可能没有读完整个消息体，统一跳到消息体末尾
+        msg.readerIndex(payloadEnd);
         // 传递到下一个处理器
         out.add(protocol);
     }
 
+    /**
+     * 反序列化消息体。消息体通过 ByteBufInputStream 直接从帧中读取，不再分配中间字节数组；压缩过的消息体先解压到临时缓冲区
+     *
+     * @param body             消息体，读取后不释放
+     * @param maxMessageLength 解压后的最大长度，超过时抛出 {@link io.netty.handler.codec.DecoderException}
+     */
+    static <T> T decodeBody(ByteBufAllocator alloc, ByteBuf body, byte serializeType, byte compressType,
+                            int maxMessageLength, Class<T> clazz) throws IOException {
+        // 获取反序列化算法
+        Serialization serialization = SerializationFactory.getSerialization(serializeType);
+        ByteBuf decompressed = null;
+        try {
+            ByteBufInputStream in;
+            if (compressType != CompressionType.NONE.getType()) {
+                Compression compression = CompressionFactory.getCompression(compressType);
+                // 初始容量按压缩率 2 估计，但不超过解压后的上限；最大容量即上限，扩容不会超过该大小
+                int initialCapacity = (int) Math.min((long) body.readableBytes() << 1, maxMessageLength);
+                decompressed = compression.preferHeapBuffer()
+                        ? alloc.heapBuffer(initialCapacity, maxMessageLength)
+                        : alloc.ioBuffer(initialCapacity, maxMessageLength);
+                compression.decompress(body.duplicate(), decompressed, maxMessageLength);
+                in = new ByteBufInputStream(decompressed);
+            } else {
+                in = new ByteBufInputStream(body.duplicate());
+            }
+            // 进行反序列化
+            return serialization.deserialize(clazz, in);
+        } finally {
+            if (decompressed != null) {
+                decompressed.release();
+            }
+        }
+    }
+
 }
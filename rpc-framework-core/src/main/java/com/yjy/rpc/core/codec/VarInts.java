@@ -0,0 +1,79 @@
+package com.yjy.rpc.core.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+
+/**
+ * 无符号 32 位变长整数（varint）的读写工具，每字节低 7 位存放数据，最高位表示后面是否还有字节，
+ * 与 Protobuf 的编码方式一致。小于 128 的值只占 1 字节，最多占 5 字节
+ */
+final class VarInts {
+
+    /**
+     * 变长整数的最大字节数
+     */
+    static final int MAX_SIZE = 5;
+
+    private VarInts() {
+    }
+
+    /**
+     * 计算变长整数编码后的字节数
+     */
+    static int size(int value) {
+        if ((value & (~0 << 7)) == 0) {
+            return 1;
+        }
+        if ((value & (~0 << 14)) == 0) {
+            return 2;
+        }
+        if ((value & (~0 << 21)) == 0) {
+            return 3;
+        }
+        if ((value & (~0 << 28)) == 0) {
+            return 4;
+        }
+        return 5;
+    }
+
+    static void write(ByteBuf buf, int value) {
+        while ((value & ~0x7F) != 0) {
+            buf.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf.writeByte(value);
+    }
+
+    static int read(ByteBuf buf) {
+        long result = peek(buf, buf.readerIndex());
+        if (result < 0) {
+            throw new CorruptedFrameException("Truncated varint.");
+        }
+        buf.skipBytes((int) (result >>> 32));
+        return (int) result;
+    }
+
+    /**
+     * 在不移动读指针的情况下读取变长整数
+     *
+     * @param buf   缓冲区
+     * @param index 变长整数的起始位置
+     * @return 高 32 位为占用的字节数，低 32 位为数值；可读字节不足时返回 -1
+     * @throws CorruptedFrameException 超过 5 字节仍未结束
+     */
+    static long peek(ByteBuf buf, int index) {
+        int result = 0;
+        int limit = buf.writerIndex();
+        for (int i = 0; i < MAX_SIZE; i++) {
+            if (index + i >= limit) {
+                return -1;
+            }
+            byte b = buf.getByte(index + i);
+            result |= (b & 0x7F) << (7 * i);
+            if (b >= 0) {
+                return ((long) (i + 1) << 32) | (result & 0xFFFFFFFFL);
+            }
+        }
+        throw new CorruptedFrameException("Malformed varint, more than 5 bytes.");
+    }
+}
@@ -1,6 +1,7 @@
 package com.yjy.rpc.core.common;
 
 import lombok.Data;
+import lombok.ToString;
 
 import java.io.Serializable;
 
@@ -20,4 +21,11 @@ public class RpcResponse implements Serializable {
      */
     private Exception exceptionValue;
 
+    /**
+     * 响应对应的请求，只在服务端本地使用，不参与序列化。
+     * JSON 等会丢失类型的序列化算法据此找到方法声明的泛型返回值类型
+     */
+    @ToString.Exclude
+    private transient RpcRequest request;
+
 }
@@ -0,0 +1,36 @@
+package com.yjy.rpc.core.compress;
+
+import com.yjy.rpc.core.extension.SPI;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * 压缩算法接口，直接在 ByteBuf 之间压缩、解压，由编解码器在序列化之后、反序列化之前调用
+ */
+@SPI
+public interface Compression {
+
+    /**
+     * 压缩 in 中全部可读字节，结果追加写入 out
+     *
+     * @param in  待压缩的数据
+     * @param out 压缩后的数据
+     */
+    void compress(ByteBuf in, ByteBuf out);
+
+    /**
+     * 解压 in 中全部可读字节，结果追加写入 out
+     *
+     * @param in        待解压的数据
+     * @param out       解压后的数据
+     * @param maxLength 解压后的最大长度，超过时不再继续解压，避免很小的压缩数据解压出巨大的消息体
+     * @throws io.netty.handler.codec.DecoderException 解压后的长度超过 maxLength
+     */
+    void decompress(ByteBuf in, ByteBuf out, int maxLength);
+
+    /**
+     * 是否需要使用堆内存 ByteBuf，基于 byte[] 实现的压缩算法可以直接读写堆内存的底层数组，避免拷贝
+     */
+    default boolean preferHeapBuffer() {
+        return false;
+    }
+}
@@ -0,0 +1,47 @@
+package com.yjy.rpc.core.compress;
+
+import com.yjy.rpc.core.extension.ExtensionLoader;
+import com.yjy.rpc.core.protocol.enums.CompressionType;
+
+import java.util.Locale;
+
+/**
+ * 压缩算法工厂，压缩算法由 {@link ExtensionLoader} 加载，扩展名称为压缩类型名称的小写形式，
+ * 并以协议头中的压缩类型字节为下标缓存
+ */
+public class CompressionFactory {
+
+    /**
+     * 压缩类型字节 -- 压缩算法单例，压缩类型只占 4 位
+     */
+    private static final Compression[] COMPRESSIONS = new Compression[16];
+
+    public static Compression getCompression(CompressionType enumType) {
+        return getCompression(enumType.getType());
+    }
+
+    /**
+     * 根据协议头中的压缩类型获取压缩算法
+     *
+     * @param type 压缩类型
+     * @return 压缩算法单例
+     * @throws IllegalArgumentException 非法的压缩类型或者没有对应的实现
+     */
+    public static Compression getCompression(byte type) {
+        Compression compression = type >= 0 && type < COMPRESSIONS.length ? COMPRESSIONS[type] : null;
+        if (compression == null) {
+            compression = load(CompressionType.parseByType(type));
+            COMPRESSIONS[type] = compression;
+        }
+        return compression;
+    }
+
+    private static Compression load(CompressionType enumType) {
+        ExtensionLoader<Compression> loader = ExtensionLoader.getExtensionLoader(Compression.class);
+        String name = enumType.name().toLowerCase(Locale.ROOT);
+        if (!loader.hasExtension(name)) {
+            throw new IllegalArgumentException(String.format("The compress type %s is illegal.", enumType.name()));
+        }
+        return loader.getExtension(name);
+    }
+}
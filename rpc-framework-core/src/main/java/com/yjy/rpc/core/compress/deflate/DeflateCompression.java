@@ -0,0 +1,104 @@
+package com.yjy.rpc.core.compress.deflate;
+
+import com.yjy.rpc.core.compress.Compression;
+import com.yjy.rpc.core.exception.RpcException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.DecoderException;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 基于 {@link java.util.zip} 实现的 DEFLATE 压缩算法。
+ * <p>
+ * 使用最快的压缩级别并省略 zlib 头部和校验和（完整性由 TCP 保证）。Deflater/Inflater 持有本地内存，
+ * 创建和销毁的代价较高，这里按线程复用，每次使用后重置。堆内存 ByteBuf 直接读写其底层数组，不产生额外拷贝。
+ */
+public class DeflateCompression implements Compression {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        Deflater deflater = DEFLATER.get();
+        try {
+            if (in.hasArray()) {
+                deflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes());
+            } else {
+                deflater.setInput(ByteBufUtil.getBytes(in));
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.ensureWritable(BUFFER_SIZE);
+                if (out.hasArray()) {
+                    int n = deflater.deflate(out.array(), out.arrayOffset() + out.writerIndex(), out.writableBytes());
+                    out.writerIndex(out.writerIndex() + n);
+                } else {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    out.writeBytes(buffer, 0, deflater.deflate(buffer));
+                }
+            }
+            in.skipBytes(in.readableBytes());
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out, int maxLength) {
+        Inflater inflater = INFLATER.get();
+        int start = out.writerIndex();
+        try {
+            if (in.hasArray()) {
+                inflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes());
+            } else {
+                inflater.setInput(ByteBufUtil.getBytes(in));
+            }
+            while (!inflater.finished()) {
+                int remaining = maxLength - (out.writerIndex() - start);
+                if (remaining <= 0) {
+                    // 已达到上限，只有压缩数据恰好结束时才不算超出
+                    if (inflater.inflate(new byte[1]) > 0) {
+                        throw new DecoderException(String.format(
+                                "The decompressed message exceeds the max length of %d bytes.", maxLength));
+                    }
+                    if (!inflater.finished()) {
+                        throw new RpcException("Deflate decompression failed, the data is truncated.");
+                    }
+                    break;
+                }
+                // 每次最多只解压到上限为止，不会为超出上限的数据分配内存
+                out.ensureWritable(Math.min(BUFFER_SIZE, remaining));
+                int n;
+                if (out.hasArray()) {
+                    n = inflater.inflate(out.array(), out.arrayOffset() + out.writerIndex(),
+                            Math.min(out.writableBytes(), remaining));
+                    out.writerIndex(out.writerIndex() + n);
+                } else {
+                    byte[] buffer = new byte[Math.min(BUFFER_SIZE, remaining)];
+                    n = inflater.inflate(buffer);
+                    out.writeBytes(buffer, 0, n);
+                }
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new RpcException("Deflate decompression failed, the data is truncated.");
+                }
+            }
+            in.skipBytes(in.readableBytes());
+        } catch (DataFormatException e) {
+            throw new RpcException("Deflate decompression failed.", e);
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    @Override
+    public boolean preferHeapBuffer() {
+        return true;
+    }
+}
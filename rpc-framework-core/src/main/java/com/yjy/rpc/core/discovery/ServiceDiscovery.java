@@ -6,6 +6,7 @@ import com.yjy.rpc.core.extension.SPI;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 服务发现接口类
@@ -21,6 +22,23 @@ public interface ServiceDiscovery {
      */
     ServiceInfo discover(RpcRequest request);
 
+    /**
+     * 异步进行服务发现，默认在调用线程中执行 {@link #discover(RpcRequest)}，
+     * 需要访问注册中心的实现应当重写该方法，避免阻塞调用线程
+     *
+     * @param request Rpc请求，封装了请求的服务名
+     * @return 服务提供方信息的 future，服务发现失败时异常完成
+     */
+    default CompletableFuture<ServiceInfo> discoverAsync(RpcRequest request) {
+        CompletableFuture<ServiceInfo> future = new CompletableFuture<>();
+        try {
+            future.complete(discover(request));
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
 
     /**
      * 返回服务的所有提供方，若未实现，默认返回空的 ArrayList
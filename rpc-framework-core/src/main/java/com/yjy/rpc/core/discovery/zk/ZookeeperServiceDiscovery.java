@@ -6,6 +6,7 @@ import com.yjy.rpc.core.common.ServiceInfo;
 import com.yjy.rpc.core.discovery.ServiceDiscovery;
 import com.yjy.rpc.core.exception.RpcException;
 import com.yjy.rpc.core.loadbalance.LoadBalance;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
@@ -18,7 +19,12 @@ import org.apache.curator.x.discovery.details.JsonInstanceSerializer;
 import org.apache.curator.x.discovery.details.ServiceCacheListener;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -110,6 +116,32 @@ public class ZookeeperServiceDiscovery implements ServiceDiscovery {
         }
     }
 
+    /**
+     * 本地已缓存服务列表时直接在调用线程中选择；第一次发现某个服务需要访问 zookeeper，放到单独的线程中执行
+     */
+    @Override
+    public CompletableFuture<ServiceInfo> discoverAsync(RpcRequest request) {
+        if (serviceMap.containsKey(request.getServiceName())) {
+            return ServiceDiscovery.super.discoverAsync(request);
+        }
+        return CompletableFuture.supplyAsync(() -> discover(request), DiscoveryExecutorHolder.INSTANCE);
+    }
+
+    /**
+     * 异步服务发现使用的线程池，第一次使用时创建
+     */
+    private static final class DiscoveryExecutorHolder {
+        private static final ExecutorService INSTANCE = create();
+
+        private static ExecutorService create() {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new DefaultThreadFactory("rpc-discovery", true));
+            // 空闲时不保留线程
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
     /**
      * ServiceCache:  Curator 提供的服务缓存工具，用于监听服务实例的变化
      * 通过添加 ServiceCacheListener 监听器，当服务实例发生变化时，会触发 cacheChanged 方法，该方法中更新了本地缓存的服务列表
@@ -0,0 +1,12 @@
+package com.yjy.rpc.core.exception;
+
+/**
+ * 客户端到某个服务提供方的未完成请求过多或连接不可写，请求没有发出，可以换一个服务提供方重试
+ */
+public class RpcEndpointBusyException extends RpcOverloadException {
+    private static final long serialVersionUID = 5083514172260470361L;
+
+    public RpcEndpointBusyException(String msg) {
+        super(msg);
+    }
+}
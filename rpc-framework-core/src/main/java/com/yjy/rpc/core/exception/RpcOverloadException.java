@@ -0,0 +1,12 @@
+package com.yjy.rpc.core.exception;
+
+/**
+ * 服务端过载，请求未执行就被拒绝，客户端可以据此快速失败或换一个服务端重试
+ */
+public class RpcOverloadException extends RpcException {
+    private static final long serialVersionUID = -2460436356346417364L;
+
+    public RpcOverloadException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,272 @@
+package com.yjy.rpc.core.extension;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Constructor;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SPI 扩展类加载器，参考 Dubbo 的 ExtensionLoader 实现。
+ * <p>
+ * 扩展配置文件位于 {@code META-INF/extensions/接口全限定名}，每行格式为 {@code 名称=实现类全限定名}，
+ * 以 # 开头的内容为注释，名称不区分大小写：
+ * <pre>
+ * kryo=com.yjy.rpc.core.serialization.kryo.KryoSerialization
+ * hessian=com.yjy.rpc.core.serialization.hessian.HessianSerialization
+ * </pre>
+ * 通过 {@link #getExtension(String)} 获取的扩展对象在整个 JVM 中只创建一次，需要构造参数的扩展（如注册中心地址）
+ * 通过 {@link #createExtension(String, Object...)} 创建，由调用方自行缓存。
+ *
+ * @param <T> 扩展接口类型，必须被 {@link SPI} 标注
+ */
+@Slf4j
+public final class ExtensionLoader<T> {
+
+    /**
+     * 扩展配置文件目录
+     */
+    private static final String SERVICE_DIRECTORY = "META-INF/extensions/";
+
+    /**
+     * 扩展接口 -- 扩展类加载器
+     */
+    private static final Map<Class<?>, ExtensionLoader<?>> EXTENSION_LOADERS = new ConcurrentHashMap<>();
+
+    /**
+     * 扩展实现类 -- 扩展实例，保证同一个实现类只有一个实例
+     */
+    private static final Map<Class<?>, Object> EXTENSION_INSTANCES = new ConcurrentHashMap<>();
+
+    /**
+     * 扩展接口类型
+     */
+    private final Class<T> type;
+
+    /**
+     * 扩展名称 -- 扩展实例
+     */
+    private final Map<String, Holder<T>> cachedInstances = new ConcurrentHashMap<>();
+
+    /**
+     * 扩展名称 -- 扩展实现类，第一次使用时从配置文件中加载
+     */
+    private final Holder<Map<String, Class<?>>> cachedClasses = new Holder<>();
+
+    private ExtensionLoader(Class<T> type) {
+        this.type = type;
+    }
+
+    /**
+     * 获取指定扩展接口的扩展类加载器
+     *
+     * @param type 扩展接口类型
+     * @param <S>  扩展接口类型
+     * @return 扩展类加载器
+     * @throws IllegalArgumentException 传入的类型不是被 {@link SPI} 标注的接口
+     */
+    @SuppressWarnings("unchecked")
+    public static <S> ExtensionLoader<S> getExtensionLoader(Class<S> type) {
+        if (type == null) {
+            throw new IllegalArgumentException("Extension type should not be null.");
+        }
+        if (!type.isInterface()) {
+            throw new IllegalArgumentException("Extension type must be an interface.");
+        }
+        if (type.getAnnotation(SPI.class) == null) {
+            throw new IllegalArgumentException("Extension type must be annotated by @SPI");
+        }
+        return (ExtensionLoader<S>) EXTENSION_LOADERS.computeIfAbsent(type, ExtensionLoader::new);
+    }
+
+    /**
+     * 根据名称获取扩展实例，同一名称只会创建一次
+     *
+     * @param name 扩展名称，不区分大小写
+     * @return 扩展实例
+     * @throws IllegalArgumentException 找不到对应名称的扩展
+     */
+    public T getExtension(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Extension name should not be null or empty.");
+        }
+        String key = name.toLowerCase(Locale.ROOT);
+        Holder<T> holder = cachedInstances.computeIfAbsent(key, k -> new Holder<>());
+        // 双重检查锁，保证扩展实例只创建一次
+        T instance = holder.get();
+        if (instance == null) {
+            synchronized (holder) {
+                instance = holder.get();
+                if (instance == null) {
+                    instance = newSingleton(key);
+                    holder.set(instance);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 使用构造参数创建一个新的扩展实例，不进行缓存。适用于注册中心、服务发现这类依赖外部参数的扩展
+     *
+     * @param name 扩展名称，不区分大小写
+     * @param args 构造参数，按顺序匹配实现类的公有构造方法
+     * @return 新的扩展实例
+     */
+    public T createExtension(String name, Object... args) {
+        Class<?> clazz = getExtensionClass(name);
+        for (Constructor<?> constructor : clazz.getConstructors()) {
+            if (isAssignable(constructor.getParameterTypes(), args)) {
+                try {
+                    return type.cast(constructor.newInstance(args));
+                } catch (Exception e) {
+                    throw new IllegalStateException(String.format("Failed to create extension [%s] of %s.",
+                            name, type.getName()), e);
+                }
+            }
+        }
+        throw new IllegalArgumentException(String.format("No matching constructor of %s for extension [%s].",
+                clazz.getName(), name));
+    }
+
+    /**
+     * 判断是否存在指定名称的扩展
+     */
+    public boolean hasExtension(String name) {
+        return name != null && getExtensionClasses().containsKey(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 获取指定名称的扩展实现类
+     *
+     * @throws IllegalArgumentException 找不到对应名称的扩展
+     */
+    public Class<?> getExtensionClass(String name) {
+        Class<?> clazz = name == null ? null : getExtensionClasses().get(name.toLowerCase(Locale.ROOT));
+        if (clazz == null) {
+            throw new IllegalArgumentException(String.format("No such extension [%s] of %s.", name, type.getName()));
+        }
+        return clazz;
+    }
+
+    private T newSingleton(String name) {
+        Class<?> clazz = getExtensionClass(name);
+        Object instance = EXTENSION_INSTANCES.computeIfAbsent(clazz, c -> {
+            try {
+                return c.getDeclaredConstructor().newInstance();
+            } catch (Exception e) {
+                throw new IllegalStateException(String.format("Failed to create extension [%s] of %s.",
+                        name, type.getName()), e);
+            }
+        });
+        return type.cast(instance);
+    }
+
+    private Map<String, Class<?>> getExtensionClasses() {
+        Map<String, Class<?>> classes = cachedClasses.get();
+        if (classes == null) {
+            synchronized (cachedClasses) {
+                classes = cachedClasses.get();
+                if (classes == null) {
+                    classes = Collections.unmodifiableMap(loadDirectory());
+                    cachedClasses.set(classes);
+                }
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * 加载 classpath 下所有与扩展接口同名的配置文件
+     */
+    private Map<String, Class<?>> loadDirectory() {
+        Map<String, Class<?>> classes = new HashMap<>();
+        String fileName = SERVICE_DIRECTORY + type.getName();
+        try {
+            ClassLoader classLoader = ExtensionLoader.class.getClassLoader();
+            Enumeration<URL> urls = classLoader.getResources(fileName);
+            while (urls.hasMoreElements()) {
+                loadResource(classes, classLoader, urls.nextElement());
+            }
+        } catch (IOException e) {
+            log.error("Failed to load extension files of {}.", type.getName(), e);
+        }
+        return classes;
+    }
+
+    private void loadResource(Map<String, Class<?>> classes, ClassLoader classLoader, URL url) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // 去掉注释
+                int ci = line.indexOf('#');
+                if (ci >= 0) {
+                    line = line.substring(0, ci);
+                }
+                line = line.trim();
+                int ei = line.indexOf('=');
+                if (ei <= 0) {
+                    continue;
+                }
+                String name = line.substring(0, ei).trim().toLowerCase(Locale.ROOT);
+                String className = line.substring(ei + 1).trim();
+                try {
+                    Class<?> clazz = classLoader.loadClass(className);
+                    if (!type.isAssignableFrom(clazz)) {
+                        log.error("Extension class {} is not a subtype of {}.", className, type.getName());
+                        continue;
+                    }
+                    classes.put(name, clazz);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    // 实现类依赖的三方库可能不在 classpath 中，跳过该扩展
+                    log.warn("Failed to load extension class {}: {}", className, e.toString());
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to read extension file {}.", url, e);
+        }
+    }
+
+    private static boolean isAssignable(Class<?>[] parameterTypes, Object[] args) {
+        if (parameterTypes.length != args.length) {
+            return false;
+        }
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (args[i] != null && !wrap(parameterTypes[i]).isInstance(args[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Class<?> wrap(Class<?> clazz) {
+        if (!clazz.isPrimitive()) {
+            return clazz;
+        }
+        if (clazz == int.class) {
+            return Integer.class;
+        } else if (clazz == long.class) {
+            return Long.class;
+        } else if (clazz == boolean.class) {
+            return Boolean.class;
+        } else if (clazz == byte.class) {
+            return Byte.class;
+        } else if (clazz == short.class) {
+            return Short.class;
+        } else if (clazz == char.class) {
+            return Character.class;
+        } else if (clazz == float.class) {
+            return Float.class;
+        }
+        return Double.class;
+    }
+}
@@ -0,0 +1,19 @@
+package com.yjy.rpc.core.extension;
+
+/**
+ * 持有一个值的容器类，配合双重检查锁实现扩展实例的懒加载
+ *
+ * @param <T> 持有的值类型
+ */
+public class Holder<T> {
+
+    private volatile T value;
+
+    public T get() {
+        return value;
+    }
+
+    public void set(T value) {
+        this.value = value;
+    }
+}
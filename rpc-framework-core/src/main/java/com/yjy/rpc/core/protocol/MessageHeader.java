@@ -1,21 +1,38 @@
 package com.yjy.rpc.core.protocol;
 
 import com.yjy.rpc.core.protocol.constant.ProtocolConstants;
+import com.yjy.rpc.core.protocol.enums.CompressionType;
 import com.yjy.rpc.core.protocol.enums.MessageType;
 import com.yjy.rpc.core.protocol.enums.SerializationType;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
 /**
  * 请求协议头部信息
+ * <p>
+ * 版本 1：
  * <pre>
  *   --------------------------------------------------------------------
- *  | 魔数 (4byte) | 版本号 (1byte)  | 序列化算法 (1byte)  | 消息类型 (1byte) |
+ *  | 魔数 (4byte) | 版本号 (1byte)  | 压缩算法 + 序列化算法 (1byte)  | 消息类型 (1byte) |
  *  -------------------------------------------------------------------
  *  |  状态类型 (1byte)  |     消息序列号 (4byte)   |     消息长度 (4byte)    |
  *  --------------------------------------------------------------------
  * </pre>
+ * 版本 2：
+ * <pre>
+ *   --------------------------------------------------------------------
+ *  | 魔数 (4byte) | 版本号 (1byte)  | 序列化算法 (1byte)  | 压缩算法 (1byte) |
+ *  -------------------------------------------------------------------
+ *  |  消息类型 (1byte)  |  状态类型 (1byte)  |     消息序列号 (8byte)        |
+ *  --------------------------------------------------------------------
+ *  |  消息长度 (varint)  |  附加信息个数 (varint)  | 附加信息 key/value ...  |
+ *  --------------------------------------------------------------------
+ * </pre>
+ * 版本 2 的消息长度包含附加信息和消息体，附加信息的 key、value 均为 varint 长度 + UTF-8 字节。
  */
 @Data
 @Builder
@@ -36,6 +53,12 @@ public class MessageHeader {
      */
     private byte serializerType;
 
+    /**
+     * 压缩算法，版本 2 为单独的 1 字节；版本 1 与序列化算法共用 1 字节，占高 4 位，但不再压缩。
+     * 为 {@link ProtocolConstants#COMPRESS_TYPE_DEFAULT} 时使用编码器的默认压缩算法
+     */
+    private byte compressType;
+
     /**
      * 1字节 消息类型：rpc请求，rpc响应，心跳检查，检查响应
      */
@@ -47,29 +70,78 @@ public class MessageHeader {
     private byte messageStatus;
 
     /**
-     * 4字节 消息的序列号 ID
+     * 消息的序列号 ID，版本 2 为 8 字节，版本 1 只传输低 4 字节
      */
-    private int sequenceId;
+    private long sequenceId;
 
     /**
-     * 4字节 数据内容长度
+     * 数据内容长度，版本 1 为 4 字节，版本 2 为变长整数（包含附加信息）
      */
     private int length;
 
     /**
-     * 根据输入的序列化算法构造一个 MessageHeader 对象
+     * 附加信息，如超时时间、链路追踪 ID、路由标记等，只有版本 2 会传输
+     */
+    private Map<String, String> attachments;
+
+    /**
+     * 根据输入的序列化算法构造一个 MessageHeader 对象，使用编码器的默认压缩算法
      *
      * @param serializeName 序列化算法名称
      * @return 构造指定序列化算法的默认协议头对象
      */
     public static MessageHeader build(String serializeName) {
+        MessageHeader header = build(serializeName, CompressionType.NONE.name());
+        header.setCompressType(ProtocolConstants.COMPRESS_TYPE_DEFAULT);
+        return header;
+    }
+
+    /**
+     * 根据输入的序列化算法和压缩算法构造一个 MessageHeader 对象
+     *
+     * @param serializeName 序列化算法名称
+     * @param compressName  压缩算法名称，消息体达到压缩阈值时才会压缩，none 表示不压缩
+     * @return 构造指定序列化算法、压缩算法的默认协议头对象
+     */
+    public static MessageHeader build(String serializeName, String compressName) {
+        return build(serializeName, compressName, ProtocolConstants.VERSION);
+    }
 
+    /**
+     * 根据输入的序列化算法、压缩算法和协议版本构造一个 MessageHeader 对象
+     *
+     * @param serializeName 序列化算法名称
+     * @param compressName  压缩算法名称，消息体达到压缩阈值时才会压缩，none 表示不压缩；版本 1 不压缩
+     * @param version       协议版本
+     * @return 构造指定序列化算法、压缩算法、协议版本的默认协议头对象
+     */
+    public static MessageHeader build(String serializeName, String compressName, byte version) {
+        long sequenceId = ProtocolConstants.getSequenceId();
         return MessageHeader.builder()
                 .magicNum(ProtocolConstants.MAGIC_NUM)
-                .version(ProtocolConstants.VERSION)
+                .version(version)
                 .serializerType(SerializationType.parseByName(serializeName).getType())
+                .compressType(CompressionType.parseByName(compressName).getType())
                 .messageType(MessageType.REQUEST.getType())
-                .sequenceId(ProtocolConstants.getSequenceId()) // 添加唯一 ID 生成
+                // 版本 1 只传输低 4 字节，解码时按无符号数还原，保证响应的序列号与请求一致
+                .sequenceId(version == ProtocolConstants.VERSION_1 ? sequenceId & 0xFFFFFFFFL : sequenceId)
                 .build();
     }
+
+    /**
+     * 添加一个附加信息
+     */
+    public void putAttachment(String key, String value) {
+        if (attachments == null) {
+            attachments = new LinkedHashMap<>();
+        }
+        attachments.put(key, value);
+    }
+
+    /**
+     * 获取附加信息，不存在时返回 null
+     */
+    public String getAttachment(String key) {
+        return attachments == null ? null : attachments.get(key);
+    }
 }
@@ -1,23 +1,104 @@
 package com.yjy.rpc.core.protocol.constant;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ProtocolConstants {
-    private static final AtomicInteger ai = new AtomicInteger();
+    private static final AtomicLong al = new AtomicLong();
 
     /**
      * 魔数，用来第一时间判断是否无效数据包
      */
     public static final byte[] MAGIC_NUM = new byte[]{(byte) 'y', (byte) 'r', (byte) 'p', (byte) 'c'};
 
-    public static final byte VERSION = 1;
+    /**
+     * 协议版本 1：4 字节序列号，4 字节定长消息长度
+     */
+    public static final byte VERSION_1 = 1;
+
+    /**
+     * 协议版本 2：8 字节序列号，变长消息长度，支持附加信息
+     */
+    public static final byte VERSION_2 = 2;
+
+    /**
+     * 客户端默认使用的协议版本，解码时两个版本都支持。
+     * 默认仍为版本 1，滚动升级时先升级服务端（服务提供方），再由客户端配置为版本 2，未升级的服务端无法解码版本 2
+     */
+    public static final byte VERSION = VERSION_1;
+
+    /**
+     * 版本 1 协议头部固定长度：魔数 4 + 版本号 1 + 序列化算法 1 + 消息类型 1 + 状态 1 + 序列号 4 + 长度 4
+     */
+    public static final int HEADER_LENGTH = 16;
+
+    /**
+     * 版本 2 协议头部定长部分的长度：魔数 4 + 版本号 1 + 序列化算法 1 + 压缩算法 1 + 消息类型 1 + 状态 1 + 序列号 8，
+     * 之后是变长的消息长度
+     */
+    public static final int V2_FIXED_HEADER_LENGTH = 17;
+
+    /**
+     * 附加信息：调用方的超时时间（毫秒），服务端据此丢弃已经超时的请求
+     */
+    public static final String ATTACHMENT_TIMEOUT = "timeout";
+
+    /**
+     * 附加信息：链路追踪 ID
+     */
+    public static final String ATTACHMENT_TRACE_ID = "traceId";
+
+    /**
+     * 附加信息：方法定义的编号。连接上第一次调用某个方法时携带完整的请求和该编号，服务端记录编号与方法的对应关系
+     */
+    public static final String ATTACHMENT_METHOD_DEFINE = "mdef";
+
+    /**
+     * 附加信息：方法引用的编号。请求体只包含参数，服务名、方法名、参数类型由服务端按编号补全
+     */
+    public static final String ATTACHMENT_METHOD_REF = "mref";
+
+    /**
+     * 每个连接最多定义的方法数量，超出后按完整请求发送
+     */
+    public static final int MAX_METHOD_DEFINITIONS = 1024;
+
+    /**
+     * 分片标记，位于消息类型字节的最高位。大消息被拆分为多个帧发送，除最后一帧外都带有该标记，
+     * 每一帧都是完整的协议头 + 部分消息体，序列号相同
+     */
+    public static final byte CHUNK_FLAG = (byte) 0x80;
+
+    /**
+     * 单个数据帧的默认最大长度 8MB
+     */
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 8 * 1024 * 1024;
+
+    /**
+     * 分片重组后消息体的默认最大长度 64MB
+     */
+    public static final int DEFAULT_MAX_MESSAGE_LENGTH = 64 * 1024 * 1024;
+
+    /**
+     * 默认分片大小 256KB，消息体超过该大小时拆分为多个帧发送，0 表示不分片
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+    /**
+     * 默认压缩阈值 4KB，消息体达到该大小才进行压缩，小消息压缩的收益抵不上开销
+     */
+    public static final int DEFAULT_COMPRESS_THRESHOLD = 4 * 1024;
+
+    /**
+     * 协议头未指定压缩算法，由编码器使用默认压缩算法，只在本地使用，不会写入协议头。
+     * 协议头为 {@code NONE} 时表示明确不压缩
+     */
+    public static final byte COMPRESS_TYPE_DEFAULT = -1;
 
     public static final String PING = "ping";
 
     public static final String PONG = "pong";
 
-    public static int getSequenceId() {
-        // todo: 实现原子操作
-        return ai.getAndIncrement();
+    public static long getSequenceId() {
+        return al.getAndIncrement();
     }
 }
@@ -0,0 +1,65 @@
+package com.yjy.rpc.core.protocol.enums;
+
+import lombok.Getter;
+
+/**
+ * 压缩算法枚举类
+ */
+public enum CompressionType {
+    /**
+     * 不压缩
+     */
+    NONE((byte) 0),
+
+    /**
+     * DEFLATE 压缩算法，压缩率高
+     */
+    DEFLATE((byte) 1),
+
+    /**
+     * SNAPPY 压缩算法，压缩、解压速度快
+     */
+    SNAPPY((byte) 2);
+
+    /**
+     * 以类型字节为下标的枚举数组，解析时直接按下标取值，不再遍历 values()
+     */
+    private static final CompressionType[] TYPES;
+
+    static {
+        int max = 0;
+        for (CompressionType value : values()) {
+            max = Math.max(max, value.type);
+        }
+        TYPES = new CompressionType[max + 1];
+        for (CompressionType value : values()) {
+            TYPES[value.type] = value;
+        }
+    }
+
+    @Getter
+    private final byte type;
+
+    CompressionType(byte type) {
+        this.type = type;
+    }
+
+    public static CompressionType parseByName(String compressName) {
+        for (CompressionType compressionType : CompressionType.values()) {
+            if (compressionType.name().equalsIgnoreCase(compressName)) {
+                return compressionType;
+            }
+        }
+        throw new IllegalArgumentException(String.format("The compress type %s is illegal.", compressName));
+    }
+
+    /**
+     * 通过压缩类型获取压缩算法枚举类
+     */
+    public static CompressionType parseByType(byte type) {
+        if (type >= 0 && type < TYPES.length && TYPES[type] != null) {
+            return TYPES[type];
+        }
+        throw new IllegalArgumentException(String.format("The compress type %s is illegal.", type));
+    }
+}
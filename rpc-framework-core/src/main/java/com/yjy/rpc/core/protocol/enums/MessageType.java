@@ -27,6 +27,22 @@ public enum MessageType {
     HEARTBEAT_RESPONSE((byte) 3);
 
 
+    /**
+     * 以类型字节为下标的枚举数组，解析时直接按下标取值，不再遍历 values()
+     */
+    private static final MessageType[] TYPES;
+
+    static {
+        int max = 0;
+        for (MessageType value : values()) {
+            max = Math.max(max, value.type);
+        }
+        TYPES = new MessageType[max + 1];
+        for (MessageType value : values()) {
+            TYPES[value.type] = value;
+        }
+    }
+
     @Getter
     private final byte type;
 
@@ -42,10 +58,8 @@ public enum MessageType {
      * @throws IllegalArgumentException 非法的消息类型
      */
     public static MessageType parseByType(byte type) throws IllegalArgumentException {
-        for (MessageType messageType : MessageType.values()) {
-            if (messageType.getType() == type) {
-                return messageType;
-            }
+        if (type >= 0 && type < TYPES.length && TYPES[type] != null) {
+            return TYPES[type];
         }
         throw new IllegalArgumentException(String.format("The message type %s is illegal.", type));
     }
@@ -31,6 +31,22 @@ public enum SerializationType {
      */
     PROTOSTUFF((byte) 4);
 
+    /**
+     * 以类型字节为下标的枚举数组，解析时直接按下标取值，不再遍历 values()
+     */
+    private static final SerializationType[] TYPES;
+
+    static {
+        int max = 0;
+        for (SerializationType value : values()) {
+            max = Math.max(max, value.type);
+        }
+        TYPES = new SerializationType[max + 1];
+        for (SerializationType value : values()) {
+            TYPES[value.type] = value;
+        }
+    }
+
     @Getter
     private final byte type;
 
@@ -51,10 +67,8 @@ public enum SerializationType {
      * 通过序列化类型获取序列化算法枚举类
      */
     public static SerializationType parseByType(byte type) {
-        for (SerializationType serializationType : SerializationType.values()) {
-            if (serializationType.getType() == type) {
-                return serializationType;
-            }
+        if (type >= 0 && type < TYPES.length && TYPES[type] != null) {
+            return TYPES[type];
         }
         throw new IllegalArgumentException(String.format("The serialize type %s is illegal.", type));
     }
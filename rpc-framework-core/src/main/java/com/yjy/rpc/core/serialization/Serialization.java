@@ -2,6 +2,11 @@ package com.yjy.rpc.core.serialization;
 
 import com.yjy.rpc.core.extension.SPI;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 @SPI
 public interface Serialization {
 
@@ -14,6 +19,21 @@ public interface Serialization {
      */
     <T> byte[] serialize(T object);
 
+    /**
+     * 将传入对象直接序列化到输出流中，编解码器传入的是包装了池化 ByteBuf 的输出流，
+     * 这样可以省去中间字节数组的分配和拷贝。
+     * <p>
+     * 默认实现回退到 {@link #serialize(Object)}，还未支持流式写出的序列化算法无需修改
+     *
+     * @param object 需要被序列化的对象
+     * @param out    输出流
+     * @param <T>    对象类型
+     * @throws IOException 写出失败
+     */
+    default <T> void serialize(T object, OutputStream out) throws IOException {
+        out.write(serialize(object));
+    }
+
     /**
      * 将对象进行反序列化
      *
@@ -23,4 +43,30 @@ public interface Serialization {
      * @return 返回序列化后的对象
      */
     <T> T deserialize(Class<T> clazz, byte[] bytes);
+
+    /**
+     * 从输入流中反序列化对象，编解码器传入的是直接读取帧 ByteBuf 的输入流，消息体无需先拷贝成字节数组。
+     * <p>
+     * 默认实现按 {@link InputStream#available()} 读出剩余字节后回退到 {@link #deserialize(Class, byte[])}，
+     * 编解码器传入的 {@link io.netty.buffer.ByteBufInputStream} 会准确返回消息体剩余长度
+     *
+     * @param clazz 对象的类型
+     * @param in    输入流
+     * @param <T>   对象类型
+     * @return 返回反序列化后的对象
+     * @throws IOException 读取失败
+     */
+    default <T> T deserialize(Class<T> clazz, InputStream in) throws IOException {
+        int length = in.available();
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(bytes, offset, length - offset);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of the message body.");
+            }
+            offset += read;
+        }
+        return deserialize(clazz, bytes);
+    }
 }
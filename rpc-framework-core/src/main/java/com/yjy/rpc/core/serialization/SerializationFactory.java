@@ -1,22 +1,49 @@
 package com.yjy.rpc.core.serialization;
 
+import com.yjy.rpc.core.extension.ExtensionLoader;
 import com.yjy.rpc.core.protocol.enums.SerializationType;
-import com.yjy.rpc.core.serialization.hessian.HessianSerialization;
-import com.yjy.rpc.core.serialization.json.JsonSerialization;
-import com.yjy.rpc.core.serialization.kryo.KryoSerialization;
 
+import java.util.Locale;
+
+/**
+ * 序列化算法工厂，序列化算法由 {@link ExtensionLoader} 加载，扩展名称为序列化类型名称的小写形式。
+ * 每种算法只创建一个实例，并以协议头中的序列化类型字节为下标缓存，编解码时无需再分配对象或遍历枚举
+ */
 public class SerializationFactory {
+
+    /**
+     * 序列化类型字节 -- 序列化算法单例，序列化类型字节为非负数
+     */
+    private static final Serialization[] SERIALIZATIONS = new Serialization[Byte.MAX_VALUE + 1];
+
     public static Serialization getSerialization(SerializationType enumType) {
-        switch (enumType) {
-            case JSON:
-                return new JsonSerialization();
-            case HESSIAN:
-                return new HessianSerialization();
-            case KRYO:
-                return new KryoSerialization();
-            default:
-                throw new IllegalArgumentException(String.format("The serialization type %s is illegal.",
-                        enumType.name()));
+        return getSerialization(enumType.getType());
+    }
+
+    /**
+     * 根据协议头中的序列化类型获取序列化算法
+     *
+     * @param type 序列化类型
+     * @return 序列化算法单例
+     * @throws IllegalArgumentException 非法的序列化类型或者没有对应的实现
+     */
+    public static Serialization getSerialization(byte type) {
+        Serialization serialization = type >= 0 ? SERIALIZATIONS[type] : null;
+        if (serialization == null) {
+            // 扩展加载器保证实例唯一，这里并发写入同一个下标是安全的
+            serialization = load(SerializationType.parseByType(type));
+            SERIALIZATIONS[type] = serialization;
+        }
+        return serialization;
+    }
+
+    private static Serialization load(SerializationType enumType) {
+        ExtensionLoader<Serialization> loader = ExtensionLoader.getExtensionLoader(Serialization.class);
+        String name = enumType.name().toLowerCase(Locale.ROOT);
+        if (!loader.hasExtension(name)) {
+            throw new IllegalArgumentException(String.format("The serialization type %s is illegal.",
+                    enumType.name()));
         }
+        return loader.getExtension(name);
     }
 }
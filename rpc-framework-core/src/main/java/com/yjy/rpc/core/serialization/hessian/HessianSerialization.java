@@ -1,15 +1,215 @@
 package com.yjy.rpc.core.serialization.hessian;
 
+import com.caucho.hessian.io.AbstractHessianInput;
+import com.caucho.hessian.io.AbstractMapDeserializer;
+import com.caucho.hessian.io.AbstractSerializerFactory;
+import com.caucho.hessian.io.Deserializer;
+import com.caucho.hessian.io.Hessian2Input;
+import com.caucho.hessian.io.Hessian2Output;
+import com.caucho.hessian.io.IOExceptionWrapper;
+import com.caucho.hessian.io.Serializer;
+import com.caucho.hessian.io.SerializerFactory;
+import com.yjy.rpc.core.exception.RpcException;
 import com.yjy.rpc.core.serialization.Serialization;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 Hessian2 实现的序列化算法。
+ * <p>
+ * 所有线程共享同一个 {@link SerializerFactory}，类的序列化器只解析一次；Hessian2Output/Hessian2Input
+ * 及其缓冲区按线程复用，每次调用只需重新绑定输入输出流，解码失败的 Hessian2Input 会被丢弃。{@code Class} 对象的反序列化结果按类名缓存，
+ * {@code RpcRequest.parameterTypes} 不会在每次调用时都执行 {@link Class#forName(String)}。
+ */
 public class HessianSerialization implements Serialization {
+
+    /**
+     * 线程复用的字节数组输出流超过该大小时丢弃，避免偶发的大消息长期占用内存
+     */
+    private static final int MAX_REUSED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final SerializerFactory SERIALIZER_FACTORY = new SerializerFactory();
+
+    static {
+        // 业务 DTO 不要求实现 Serializable
+        SERIALIZER_FACTORY.setAllowNonSerializable(true);
+        SERIALIZER_FACTORY.addFactory(new AbstractSerializerFactory() {
+            private final Deserializer classDeserializer = new CachedClassDeserializer();
+
+            @Override
+            public Serializer getSerializer(Class cl) {
+                return null;
+            }
+
+            @Override
+            public Deserializer getDeserializer(Class cl) {
+                return cl == Class.class ? classDeserializer : null;
+            }
+        });
+    }
+
+    private static final ThreadLocal<Hessian2Output> OUTPUT = ThreadLocal.withInitial(() -> {
+        Hessian2Output output = new Hessian2Output();
+        output.setSerializerFactory(SERIALIZER_FACTORY);
+        return output;
+    });
+
+    private static final ThreadLocal<Hessian2Input> INPUT = ThreadLocal.withInitial(() -> {
+        Hessian2Input input = new Hessian2Input();
+        input.setSerializerFactory(SERIALIZER_FACTORY);
+        return input;
+    });
+
+    private static final ThreadLocal<ByteArrayOutputStream> BYTES = ThreadLocal.withInitial(ByteArrayOutputStream::new);
+
     @Override
     public <T> byte[] serialize(T object) {
-        return new byte[0];
+        ByteArrayOutputStream bos = BYTES.get();
+        try {
+            serialize(object, bos);
+            return bos.toByteArray();
+        } catch (IOException e) {
+            throw new RpcException("Hessian serialization failed.", e);
+        } finally {
+            if (bos.size() > MAX_REUSED_BUFFER_SIZE) {
+                BYTES.remove();
+            } else {
+                bos.reset();
+            }
+        }
+    }
+
+    @Override
+    public <T> void serialize(T object, OutputStream out) throws IOException {
+        Hessian2Output output = OUTPUT.get();
+        output.init(out);
+        try {
+            output.writeObject(object);
+            output.flushBuffer();
+        } finally {
+            // 解除对输出流的引用，同时清空引用表
+            output.init(null);
+        }
     }
 
     @Override
     public <T> T deserialize(Class<T> clazz, byte[] bytes) {
-        return null;
+        try {
+            return deserialize(clazz, new ByteArrayInputStream(bytes));
+        } catch (IOException e) {
+            throw new RpcException("Hessian deserialization failed.", e);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(Class<T> clazz, InputStream in) throws IOException {
+        Hessian2Input input = INPUT.get();
+        input.init(in);
+        boolean completed = false;
+        try {
+            T value = clazz.cast(input.readObject(clazz));
+            completed = true;
+            return value;
+        } finally {
+            release(input, completed);
+        }
+    }
+
+    /**
+     * 解除对输入流的引用。{@link Hessian2Input#init(InputStream)} 不会重置内部缓冲区的读写位置，
+     * 解码失败或者对象之后还有未读取的数据时，缓冲区中残留的字节会污染同一线程上的下一条消息，此时丢弃该实例
+     */
+    private static void release(Hessian2Input input, boolean completed) {
+        input.init(null);
+        if (completed) {
+            try {
+                input.resetBuffer();
+                return;
+            } catch (IllegalStateException ignored) {
+                // 缓冲区中还有未读取的数据
+            }
+        }
+        INPUT.remove();
+    }
+
+    /**
+     * 带缓存的 {@code Class} 反序列化器，替代 Hessian 默认每次都调用 {@link Class#forName(String)} 的实现
+     */
+    private static final class CachedClassDeserializer extends AbstractMapDeserializer {
+
+        private static final Map<String, Class<?>> PRIMITIVE_CLASSES = new HashMap<>();
+
+        static {
+            for (Class<?> clazz : new Class<?>[]{void.class, boolean.class, byte.class, char.class, short.class,
+                    int.class, long.class, float.class, double.class}) {
+                PRIMITIVE_CLASSES.put(clazz.getName(), clazz);
+            }
+        }
+
+        private final Map<String, Class<?>> classCache = new ConcurrentHashMap<>(PRIMITIVE_CLASSES);
+
+        @Override
+        public Class<?> getType() {
+            return Class.class;
+        }
+
+        @Override
+        public Object readMap(AbstractHessianInput in) throws IOException {
+            int ref = in.addRef(null);
+            String name = null;
+            while (!in.isEnd()) {
+                String key = in.readString();
+                if ("name".equals(key)) {
+                    name = in.readString();
+                } else {
+                    in.readObject();
+                }
+            }
+            in.readMapEnd();
+            Class<?> value = forName(name);
+            in.setRef(ref, value);
+            return value;
+        }
+
+        @Override
+        public Object readObject(AbstractHessianInput in, Object[] fields) throws IOException {
+            int ref = in.addRef(null);
+            String name = null;
+            for (Object field : fields) {
+                if ("name".equals(field)) {
+                    name = in.readString();
+                } else {
+                    in.readObject();
+                }
+            }
+            Class<?> value = forName(name);
+            in.setRef(ref, value);
+            return value;
+        }
+
+        private Class<?> forName(String name) throws IOException {
+            if (name == null) {
+                throw new IOException("Serialized Class expects name.");
+            }
+            Class<?> clazz = classCache.get(name);
+            if (clazz == null) {
+                try {
+                    ClassLoader loader = Thread.currentThread().getContextClassLoader();
+                    clazz = Class.forName(name, false,
+                            loader != null ? loader : HessianSerialization.class.getClassLoader());
+                } catch (ClassNotFoundException e) {
+                    throw new IOExceptionWrapper(e);
+                }
+                classCache.put(name, clazz);
+            }
+            return clazz;
+        }
     }
 }
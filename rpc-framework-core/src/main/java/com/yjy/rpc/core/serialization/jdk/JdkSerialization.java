@@ -0,0 +1,55 @@
+package com.yjy.rpc.core.serialization.jdk;
+
+import com.yjy.rpc.core.exception.RpcException;
+import com.yjy.rpc.core.serialization.Serialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * 基于 JDK 自带序列化机制实现的序列化算法，要求消息体实现 {@link java.io.Serializable} 接口。
+ */
+public class JdkSerialization implements Serialization {
+
+    @Override
+    public <T> byte[] serialize(T object) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try {
+            serialize(object, bos);
+        } catch (IOException e) {
+            throw new RpcException("Jdk serialization failed.", e);
+        }
+        return bos.toByteArray();
+    }
+
+    @Override
+    public <T> void serialize(T object, OutputStream out) throws IOException {
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(object);
+        oos.flush();
+    }
+
+    @Override
+    public <T> T deserialize(Class<T> clazz, byte[] bytes) {
+        try {
+            return deserialize(clazz, new ByteArrayInputStream(bytes));
+        } catch (IOException e) {
+            throw new RpcException("Jdk deserialization failed.", e);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(Class<T> clazz, InputStream in) throws IOException {
+        ObjectInputStream ois = new ObjectInputStream(in);
+        try {
+            return clazz.cast(ois.readObject());
+        } catch (ClassNotFoundException e) {
+            throw new RpcException("Jdk deserialization failed.", e);
+        }
+    }
+}
@@ -1,15 +1,552 @@
 package com.yjy.rpc.core.serialization.json;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.yjy.rpc.core.common.RpcRequest;
+import com.yjy.rpc.core.common.RpcResponse;
+import com.yjy.rpc.core.exception.RpcException;
 import com.yjy.rpc.core.serialization.Serialization;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 Gson 实现的 JSON 序列化算法。
+ * <p>
+ * 普通 JSON 会丢失 {@code RpcRequest.parameterValues} 和 {@code RpcResponse.returnValue} 这类 Object 字段的类型，
+ * 这里为请求和响应定义了专门的 TypeAdapter：
+ * <ul>
+ *     <li>请求参数按照 {@code parameterTypes} 解码，若能加载服务接口，则使用方法声明的泛型参数类型；</li>
+ *     <li>响应在返回值前写入 {@code returnType}，异常只传递类型和信息；方法声明的返回值是泛型类型（如 {@code List<Dto>}）时，
+ *     还会写入方法签名，调用方按方法声明的泛型返回值类型解码，异步方法取 CompletableFuture 的类型参数。</li>
+ * </ul>
+ * 每个服务方法的参数和返回值 TypeAdapter 只解析一次并缓存，调用时不会再对 DTO 类进行反射。
+ * <pre>
+ * {"serviceName":"com.xxx.HelloService-1.0","method":"hello","parameterTypes":["java.lang.String"],"parameterValues":["rpc"]}
+ * {"returnType":"java.lang.String","returnValue":"hello, rpc"}
+ * {"serviceName":"com.xxx.HelloService-1.0","method":"list","parameterTypes":[],"returnType":"java.util.ArrayList","returnValue":[{"name":"rpc"}]}
+ * </pre>
+ */
 public class JsonSerialization implements Serialization {
+
+    private static final Map<String, Class<?>> PRIMITIVE_CLASSES = new HashMap<>();
+
+    static {
+        for (Class<?> clazz : new Class<?>[]{void.class, boolean.class, byte.class, char.class, short.class,
+                int.class, long.class, float.class, double.class}) {
+            PRIMITIVE_CLASSES.put(clazz.getName(), clazz);
+        }
+    }
+
+    /**
+     * 类名 -- Class 对象
+     */
+    private final Map<String, Class<?>> classCache = new ConcurrentHashMap<>(PRIMITIVE_CLASSES);
+
+    /**
+     * 类型 -- TypeAdapter，避免每次都构造 TypeToken 去查找 Gson 内部的缓存
+     */
+    private final Map<Class<?>, TypeAdapter<?>> adapterCache = new ConcurrentHashMap<>();
+
+    /**
+     * 服务方法签名 -- 各参数和返回值的 TypeAdapter，签名来自对端，只缓存能解析到服务接口方法的签名
+     */
+    private final Map<MethodSignature, MethodAdapters> methodAdapterCache = new ConcurrentHashMap<>();
+
+    /**
+     * 异常类名 -- 以 String 为参数的构造方法
+     */
+    private final Map<String, Constructor<?>> exceptionConstructorCache = new ConcurrentHashMap<>();
+
+    private final Gson gson;
+
+    public JsonSerialization() {
+        this.gson = new GsonBuilder()
+                .registerTypeAdapter(Class.class, new ClassAdapter().nullSafe())
+                .registerTypeAdapter(RpcRequest.class, new RpcRequestAdapter().nullSafe())
+                .registerTypeAdapter(RpcResponse.class, new RpcResponseAdapter().nullSafe())
+                .disableHtmlEscaping()
+                .create();
+    }
+
     @Override
     public <T> byte[] serialize(T object) {
-        return new byte[0];
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try {
+            serialize(object, bos);
+        } catch (IOException e) {
+            throw new RpcException("Json serialization failed.", e);
+        }
+        return bos.toByteArray();
+    }
+
+    @Override
+    public <T> void serialize(T object, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        if (object == null) {
+            jsonWriter.nullValue();
+        } else {
+            write(jsonWriter, adapter(object.getClass()), object);
+        }
+        jsonWriter.flush();
     }
 
     @Override
     public <T> T deserialize(Class<T> clazz, byte[] bytes) {
+        try {
+            return deserialize(clazz, new ByteArrayInputStream(bytes));
+        } catch (IOException e) {
+            throw new RpcException("Json deserialization failed.", e);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(Class<T> clazz, InputStream in) throws IOException {
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        return clazz.cast(adapter(clazz).read(new JsonReader(reader)));
+    }
+
+    private TypeAdapter<?> adapter(Class<?> clazz) {
+        TypeAdapter<?> adapter = adapterCache.get(clazz);
+        if (adapter == null) {
+            adapter = gson.getAdapter(clazz);
+            adapterCache.put(clazz, adapter);
+        }
+        return adapter;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void write(JsonWriter out, TypeAdapter<?> adapter, Object value) throws IOException {
+        ((TypeAdapter<Object>) adapter).write(out, value);
+    }
+
+    private Class<?> forName(String name) throws ClassNotFoundException {
+        Class<?> clazz = classCache.get(name);
+        if (clazz == null) {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            clazz = Class.forName(name, false, loader != null ? loader : JsonSerialization.class.getClassLoader());
+            classCache.put(name, clazz);
+        }
+        return clazz;
+    }
+
+    /**
+     * 获取服务方法各参数的 TypeAdapter，第一次调用时解析并缓存
+     */
+    private TypeAdapter<?>[] parameterAdapters(String serviceName, String method, Class<?>[] parameterTypes) {
+        return methodAdapters(serviceName, method, parameterTypes).parameters;
+    }
+
+    /**
+     * 获取服务方法泛型返回值的 TypeAdapter，第一次调用时解析并缓存
+     *
+     * @return 返回值不是泛型类型或无法加载服务接口时返回 null，此时按返回值的运行时类型编解码
+     */
+    private TypeAdapter<?> returnAdapter(String serviceName, String method, Class<?>[] parameterTypes) {
+        return methodAdapters(serviceName, method, parameterTypes).returnValue;
+    }
+
+    private MethodAdapters methodAdapters(String serviceName, String method, Class<?>[] parameterTypes) {
+        MethodSignature signature = new MethodSignature(serviceName, method, parameterTypes);
+        MethodAdapters adapters = methodAdapterCache.get(signature);
+        if (adapters == null) {
+            Method resolved = resolveMethod(signature);
+            Type[] types = resolved != null ? resolved.getGenericParameterTypes() : signature.parameterTypes;
+            TypeAdapter<?>[] parameters = new TypeAdapter<?>[types.length];
+            for (int i = 0; i < types.length; i++) {
+                parameters[i] = types[i] instanceof Class ? adapter((Class<?>) types[i]) : gson.getAdapter(TypeToken.get(types[i]));
+            }
+            Type returnType = resolved != null ? genericReturnType(resolved) : null;
+            // 只有参数化类型和泛型数组需要声明的类型，其他情况运行时类型更准确（如返回值声明为接口或类型变量）
+            TypeAdapter<?> returnValue = returnType instanceof ParameterizedType || returnType instanceof GenericArrayType
+                    ? gson.getAdapter(TypeToken.get(returnType)) : null;
+            adapters = new MethodAdapters(parameters, returnValue);
+            if (resolved != null) {
+                // 无法解析的签名不缓存，对端发送任意的服务名、方法名不会使缓存无限增长
+                methodAdapterCache.put(signature, adapters);
+            }
+        }
+        return adapters;
+    }
+
+    /**
+     * 服务名称为 接口名-版本号，加载服务接口中的方法
+     *
+     * @return 服务接口不在 classpath 中时（例如跨语言调用）返回 null，退化为按原始类型解码
+     */
+    private Method resolveMethod(MethodSignature signature) {
+        String serviceName = signature.serviceName;
+        int index = serviceName == null ? -1 : serviceName.lastIndexOf('-');
+        if (index > 0 && signature.method != null && signature.parameterTypes != null) {
+            try {
+                return forName(serviceName.substring(0, index)).getMethod(signature.method, signature.parameterTypes);
+            } catch (ClassNotFoundException | NoSuchMethodException | LinkageError ignored) {
+                // 接口不在 classpath 中
+            }
+        }
         return null;
     }
+
+    /**
+     * 方法声明的返回值类型，异步方法取 CompletableFuture / CompletionStage 的类型参数
+     */
+    private static Type genericReturnType(Method method) {
+        Type type = method.getGenericReturnType();
+        Class<?> rawType = method.getReturnType();
+        if (rawType == CompletableFuture.class || rawType == CompletionStage.class) {
+            return type instanceof ParameterizedType ? ((ParameterizedType) type).getActualTypeArguments()[0] : Object.class;
+        }
+        return type;
+    }
+
+    private Class<?>[] readParameterTypes(JsonReader in) throws IOException {
+        List<Class<?>> types = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            String name = in.nextString();
+            try {
+                types.add(forName(name));
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unknown parameter type " + name, e);
+            }
+        }
+        in.endArray();
+        return types.toArray(new Class<?>[0]);
+    }
+
+    private Exception newException(String type, String message) {
+        Constructor<?> constructor = exceptionConstructorCache.computeIfAbsent(type, name -> {
+            try {
+                Class<?> clazz = forName(name);
+                if (Exception.class.isAssignableFrom(clazz)) {
+                    return clazz.getConstructor(String.class);
+                }
+            } catch (ClassNotFoundException | NoSuchMethodException | LinkageError ignored) {
+                // 无法还原的异常类型统一使用 RpcException
+            }
+            return null;
+        });
+        if (constructor != null) {
+            try {
+                return (Exception) constructor.newInstance(message);
+            } catch (ReflectiveOperationException ignored) {
+                // 构造失败同样使用 RpcException
+            }
+        }
+        return new RpcException(message);
+    }
+
+    /**
+     * Class 对象按类名进行序列化
+     */
+    private final class ClassAdapter extends TypeAdapter<Class<?>> {
+        @Override
+        public void write(JsonWriter out, Class<?> value) throws IOException {
+            out.value(value.getName());
+        }
+
+        @Override
+        public Class<?> read(JsonReader in) throws IOException {
+            String name = in.nextString();
+            try {
+                return forName(name);
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unknown class " + name, e);
+            }
+        }
+    }
+
+    private final class RpcRequestAdapter extends TypeAdapter<RpcRequest> {
+        @Override
+        public void write(JsonWriter out, RpcRequest request) throws IOException {
+            out.beginObject();
+            out.name("serviceName").value(request.getServiceName());
+            out.name("method").value(request.getMethod());
+            Class<?>[] parameterTypes = request.getParameterTypes();
+            if (parameterTypes != null) {
+                out.name("parameterTypes").beginArray();
+                for (Class<?> parameterType : parameterTypes) {
+                    out.value(parameterType.getName());
+                }
+                out.endArray();
+            }
+            Object[] values = request.getParameterValues();
+            if (values != null) {
+                TypeAdapter<?>[] adapters = parameterTypes == null || parameterTypes.length != values.length ? null
+                        : parameterAdapters(request.getServiceName(), request.getMethod(), parameterTypes);
+                out.name("parameterValues").beginArray();
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] == null) {
+                        out.nullValue();
+                    } else {
+                        JsonSerialization.write(out, adapters != null ? adapters[i] : adapter(values[i].getClass()), values[i]);
+                    }
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public RpcRequest read(JsonReader in) throws IOException {
+            RpcRequest request = new RpcRequest();
+            // 参数值出现在参数类型之前时（如其他语言的调用方），先暂存为 JsonElement
+            JsonElement pendingValues = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "serviceName":
+                        request.setServiceName(in.nextString());
+                        break;
+                    case "method":
+                        request.setMethod(in.nextString());
+                        break;
+                    case "parameterTypes":
+                        request.setParameterTypes(readParameterTypes(in));
+                        break;
+                    case "parameterValues":
+                        if (request.getParameterTypes() != null) {
+                            request.setParameterValues(readParameterValues(in, request));
+                        } else {
+                            pendingValues = JsonParser.parseReader(in);
+                        }
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            if (pendingValues != null) {
+                request.setParameterValues(convertParameterValues(pendingValues, request));
+            }
+            return request;
+        }
+
+        private Object[] readParameterValues(JsonReader in, RpcRequest request) throws IOException {
+            Class<?>[] parameterTypes = request.getParameterTypes();
+            TypeAdapter<?>[] adapters = parameterAdapters(request.getServiceName(), request.getMethod(), parameterTypes);
+            Object[] values = new Object[parameterTypes.length];
+            int i = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (i >= values.length) {
+                    throw new IOException("The number of parameter values does not match the parameter types.");
+                }
+                values[i] = adapters[i].read(in);
+                i++;
+            }
+            in.endArray();
+            return values;
+        }
+
+        private Object[] convertParameterValues(JsonElement element, RpcRequest request) {
+            List<Object> values = new ArrayList<>();
+            Class<?>[] parameterTypes = request.getParameterTypes();
+            TypeAdapter<?>[] adapters = parameterTypes == null ? null
+                    : parameterAdapters(request.getServiceName(), request.getMethod(), parameterTypes);
+            int i = 0;
+            for (JsonElement value : element.getAsJsonArray()) {
+                TypeAdapter<?> adapter = adapters != null && i < adapters.length ? adapters[i] : adapter(Object.class);
+                values.add(adapter.fromJsonTree(value));
+                i++;
+            }
+            return values.toArray();
+        }
+    }
+
+    private final class RpcResponseAdapter extends TypeAdapter<RpcResponse> {
+        @Override
+        public void write(JsonWriter out, RpcResponse response) throws IOException {
+            out.beginObject();
+            Object returnValue = response.getReturnValue();
+            if (returnValue != null) {
+                RpcRequest request = response.getRequest();
+                TypeAdapter<?> adapter = request == null || request.getParameterTypes() == null ? null
+                        : returnAdapter(request.getServiceName(), request.getMethod(), request.getParameterTypes());
+                if (adapter != null) {
+                    // 返回值是泛型类型，写入方法签名，调用方据此找到声明的返回值类型
+                    out.name("serviceName").value(request.getServiceName());
+                    out.name("method").value(request.getMethod());
+                    out.name("parameterTypes").beginArray();
+                    for (Class<?> parameterType : request.getParameterTypes()) {
+                        out.value(parameterType.getName());
+                    }
+                    out.endArray();
+                } else {
+                    adapter = adapter(returnValue.getClass());
+                }
+                out.name("returnType").value(returnValue.getClass().getName());
+                out.name("returnValue");
+                JsonSerialization.write(out, adapter, returnValue);
+            }
+            Exception exception = response.getExceptionValue();
+            if (exception != null) {
+                out.name("exceptionType").value(exception.getClass().getName());
+                out.name("exceptionMessage").value(exception.getMessage());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public RpcResponse read(JsonReader in) throws IOException {
+            RpcResponse response = new RpcResponse();
+            String serviceName = null;
+            String method = null;
+            Class<?>[] parameterTypes = null;
+            Class<?> returnType = null;
+            JsonElement pendingValue = null;
+            String exceptionType = null;
+            String exceptionMessage = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "serviceName":
+                        serviceName = in.nextString();
+                        break;
+                    case "method":
+                        method = in.nextString();
+                        break;
+                    case "parameterTypes":
+                        parameterTypes = readParameterTypes(in);
+                        break;
+                    case "returnType":
+                        returnType = returnType(in.nextString());
+                        break;
+                    case "returnValue":
+                        TypeAdapter<?> adapter = parameterTypes == null ? null
+                                : returnAdapter(serviceName, method, parameterTypes);
+                        if (adapter != null) {
+                            response.setReturnValue(adapter.read(in));
+                        } else if (returnType != null) {
+                            response.setReturnValue(adapter(returnType).read(in));
+                        } else {
+                            pendingValue = JsonParser.parseReader(in);
+                        }
+                        break;
+                    case "exceptionType":
+                        exceptionType = in.nextString();
+                        break;
+                    case "exceptionMessage":
+                        exceptionMessage = in.nextString();
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            if (pendingValue != null) {
+                TypeAdapter<?> adapter = parameterTypes == null ? null
+                        : returnAdapter(serviceName, method, parameterTypes);
+                response.setReturnValue((adapter != null ? adapter : adapter(returnType != null ? returnType : Object.class))
+                        .fromJsonTree(pendingValue));
+            }
+            if (exceptionType != null || exceptionMessage != null) {
+                response.setExceptionValue(exceptionType == null ? new RpcException(exceptionMessage)
+                        : newException(exceptionType, exceptionMessage));
+            }
+            return response;
+        }
+
+        /**
+         * 调用方没有返回值类型时（如跨语言调用），按普通 JSON 解析
+         */
+        private Class<?> returnType(String name) {
+            try {
+                return forName(name);
+            } catch (ClassNotFoundException | LinkageError e) {
+                return Object.class;
+            }
+        }
+    }
+
+    /**
+     * 服务方法各参数和返回值的 TypeAdapter
+     */
+    private static final class MethodAdapters {
+        private final TypeAdapter<?>[] parameters;
+        /**
+         * 泛型返回值的 TypeAdapter，返回值不是泛型类型时为 null
+         */
+        private final TypeAdapter<?> returnValue;
+
+        MethodAdapters(TypeAdapter<?>[] parameters, TypeAdapter<?> returnValue) {
+            this.parameters = parameters;
+            this.returnValue = returnValue;
+        }
+    }
+
+    /**
+     * 服务方法签名，作为方法 TypeAdapter 缓存的 key
+     */
+    private static final class MethodSignature {
+        private final String serviceName;
+        private final String method;
+        private final Class<?>[] parameterTypes;
+        private final int hash;
+
+        MethodSignature(String serviceName, String method, Class<?>[] parameterTypes) {
+            this.serviceName = serviceName;
+            this.method = method;
+            this.parameterTypes = parameterTypes;
+            this.hash = 31 * (31 * Objects.hashCode(serviceName) + Objects.hashCode(method)) + Arrays.hashCode(parameterTypes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MethodSignature)) {
+                return false;
+            }
+            MethodSignature that = (MethodSignature) o;
+            return Objects.equals(serviceName, that.serviceName) && Objects.equals(method, that.method)
+                    && Arrays.equals(parameterTypes, that.parameterTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
 }
@@ -1,15 +1,171 @@
 package com.yjy.rpc.core.serialization.kryo;
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.JavaSerializer;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import com.esotericsoftware.kryo.util.Pool;
+import com.yjy.rpc.core.common.RpcRequest;
+import com.yjy.rpc.core.common.RpcResponse;
+import com.yjy.rpc.core.exception.RpcException;
 import com.yjy.rpc.core.serialization.Serialization;
+import org.objenesis.strategy.StdInstantiatorStrategy;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 基于 Kryo 实现的序列化算法。
+ * <p>
+ * Kryo 实例及其 Input/Output 都不是线程安全的，这里通过 {@link Pool} 进行池化复用。
+ * 协议中常用的类会预先以固定 ID 注册，序列化时只写入一个变长整数而不是完整类名；
+ * 业务 DTO 可以通过 {@link #register(Class[])} 追加注册，客户端和服务端必须以相同的顺序注册。
+ * 未注册的类依旧可以序列化，只是会在码流中写入类名。
+ */
 public class KryoSerialization implements Serialization {
+
+    /**
+     * 预注册类的起始 ID，避开 Kryo 内置基本类型占用的 ID
+     */
+    private static final int REGISTRATION_BASE_ID = 100;
+
+    /**
+     * Output 缓冲区超过该大小时不再放回池中，避免偶发的大消息长期占用内存
+     */
+    private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final int POOL_CAPACITY = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * 需要预注册的类，下标 + {@link #REGISTRATION_BASE_ID} 即为注册 ID
+     */
+    private static final List<Class<?>> REGISTERED_CLASSES = new CopyOnWriteArrayList<>(Arrays.asList(
+            RpcRequest.class, RpcResponse.class, RpcException.class,
+            Class.class, Class[].class, Object[].class, byte[].class, String[].class,
+            ArrayList.class, LinkedList.class, HashMap.class, LinkedHashMap.class, HashSet.class));
+
+    private static final Pool<Kryo> KRYO_POOL = new Pool<Kryo>(true, false, POOL_CAPACITY) {
+        @Override
+        protected Kryo create() {
+            Kryo kryo = new Kryo();
+            // 允许序列化未注册的类，未注册的类会在码流中写入类名
+            kryo.setRegistrationRequired(false);
+            // 没有无参构造方法的类使用 objenesis 创建实例
+            kryo.setInstantiatorStrategy(new DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+            // 异常对象使用 JDK 序列化，保留异常链和堆栈信息
+            kryo.addDefaultSerializer(Throwable.class, JavaSerializer.class);
+            return kryo;
+        }
+    };
+
+    private static final Pool<Output> OUTPUT_POOL = new Pool<Output>(true, false, POOL_CAPACITY) {
+        @Override
+        protected Output create() {
+            return new Output(4096, -1);
+        }
+    };
+
+    private static final Pool<Input> INPUT_POOL = new Pool<Input>(true, false, POOL_CAPACITY) {
+        @Override
+        protected Input create() {
+            return new Input(4096);
+        }
+    };
+
+    /**
+     * 追加注册业务类，注册 ID 按调用顺序分配，必须在第一次远程调用之前完成，且客户端和服务端保持一致
+     *
+     * @param classes 需要注册的类
+     */
+    public static void register(Class<?>... classes) {
+        for (Class<?> clazz : classes) {
+            if (!REGISTERED_CLASSES.contains(clazz)) {
+                REGISTERED_CLASSES.add(clazz);
+            }
+        }
+    }
+
     @Override
     public <T> byte[] serialize(T object) {
-        return new byte[0];
+        Kryo kryo = obtainKryo();
+        Output output = OUTPUT_POOL.obtain();
+        try {
+            output.setOutputStream(null);
+            kryo.writeObject(output, object);
+            return output.toBytes();
+        } finally {
+            KRYO_POOL.free(kryo);
+            freeOutput(output);
+        }
+    }
+
+    @Override
+    public <T> void serialize(T object, OutputStream out) {
+        Kryo kryo = obtainKryo();
+        Output output = OUTPUT_POOL.obtain();
+        try {
+            output.setOutputStream(out);
+            kryo.writeObject(output, object);
+            output.flush();
+        } finally {
+            output.setOutputStream(null);
+            KRYO_POOL.free(kryo);
+            freeOutput(output);
+        }
     }
 
     @Override
     public <T> T deserialize(Class<T> clazz, byte[] bytes) {
-        return null;
+        Kryo kryo = obtainKryo();
+        try {
+            // 直接包装字节数组，不会分配额外的缓冲区
+            return kryo.readObject(new Input(bytes), clazz);
+        } finally {
+            KRYO_POOL.free(kryo);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(Class<T> clazz, InputStream in) {
+        Kryo kryo = obtainKryo();
+        Input input = INPUT_POOL.obtain();
+        try {
+            input.setInputStream(in);
+            return kryo.readObject(input, clazz);
+        } finally {
+            input.setInputStream(null);
+            KRYO_POOL.free(kryo);
+            INPUT_POOL.free(input);
+        }
+    }
+
+    /**
+     * 从池中获取 Kryo 实例，并补齐在它创建之后追加的注册类
+     */
+    private static Kryo obtainKryo() {
+        Kryo kryo = KRYO_POOL.obtain();
+        int registered = REGISTERED_CLASSES.size();
+        for (int i = registered - 1; i >= 0; i--) {
+            if (kryo.getClassResolver().getRegistration(REGISTRATION_BASE_ID + i) != null) {
+                break;
+            }
+            kryo.register(REGISTERED_CLASSES.get(i), REGISTRATION_BASE_ID + i);
+        }
+        return kryo;
+    }
+
+    private static void freeOutput(Output output) {
+        if (output.getBuffer().length <= MAX_POOLED_BUFFER_SIZE) {
+            OUTPUT_POOL.free(output);
+        }
     }
 }
@@ -0,0 +1,244 @@
+package com.yjy.rpc.core.serialization.protostuff;
+
+import com.yjy.rpc.core.common.RpcResponse;
+import com.yjy.rpc.core.exception.RpcException;
+import com.yjy.rpc.core.serialization.Serialization;
+import io.protostuff.Input;
+import io.protostuff.LinkedBuffer;
+import io.protostuff.Output;
+import io.protostuff.ProtostuffIOUtil;
+import io.protostuff.Schema;
+import io.protostuff.runtime.RuntimeSchema;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 Protostuff 实现的序列化算法，无需预先编写 .proto 文件。
+ * <p>
+ * 每个类的 {@link RuntimeSchema} 只创建一次并缓存，{@link LinkedBuffer} 按线程复用。
+ * Protostuff 只能以 POJO 作为根对象，String、包装类型、集合等 JDK 类型（如心跳消息）会先放入 {@link Wrapper} 中再序列化。
+ * <p>
+ * 按字段反序列化异常对象需要反射访问 JDK 内部类（如 StackTraceElement 的私有构造方法），JDK 9 及以上会失败，
+ * 因此 {@link RpcResponse} 使用 {@link RpcResponseSchema}，与 JSON 序列化一样异常只传递类型和信息。
+ */
+public class ProtostuffSerialization implements Serialization {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * 类型 -- Schema
+     */
+    private static final Map<Class<?>, Schema<?>> SCHEMA_CACHE = new ConcurrentHashMap<>();
+
+    static {
+        SCHEMA_CACHE.put(RpcResponse.class, new RpcResponseSchema());
+    }
+
+    /**
+     * 异常类名 -- 以 String 为参数的构造方法
+     */
+    private static final Map<String, Optional<Constructor<?>>> EXCEPTION_CONSTRUCTOR_CACHE = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<LinkedBuffer> OUTPUT_BUFFER = ThreadLocal.withInitial(() -> LinkedBuffer.allocate(BUFFER_SIZE));
+
+    private static final ThreadLocal<LinkedBuffer> INPUT_BUFFER = ThreadLocal.withInitial(() -> LinkedBuffer.allocate(BUFFER_SIZE));
+
+    @Override
+    public <T> byte[] serialize(T object) {
+        LinkedBuffer buffer = OUTPUT_BUFFER.get();
+        try {
+            return ProtostuffIOUtil.toByteArray(root(object), schema(rootClass(object)), buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public <T> void serialize(T object, OutputStream out) throws IOException {
+        LinkedBuffer buffer = OUTPUT_BUFFER.get();
+        try {
+            ProtostuffIOUtil.writeTo(out, root(object), schema(rootClass(object)), buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public <T> T deserialize(Class<T> clazz, byte[] bytes) {
+        if (isWrapped(clazz)) {
+            Wrapper wrapper = new Wrapper();
+            ProtostuffIOUtil.mergeFrom(bytes, wrapper, schema(Wrapper.class));
+            return clazz.cast(wrapper.value);
+        }
+        Schema<T> schema = schema(clazz);
+        T message = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(bytes, message, schema);
+        return message;
+    }
+
+    @Override
+    public <T> T deserialize(Class<T> clazz, InputStream in) throws IOException {
+        LinkedBuffer buffer = INPUT_BUFFER.get();
+        try {
+            if (isWrapped(clazz)) {
+                Wrapper wrapper = new Wrapper();
+                ProtostuffIOUtil.mergeFrom(in, wrapper, schema(Wrapper.class), buffer);
+                return clazz.cast(wrapper.value);
+            }
+            Schema<T> schema = schema(clazz);
+            T message = schema.newMessage();
+            ProtostuffIOUtil.mergeFrom(in, message, schema, buffer);
+            return message;
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Schema<T> schema(Class<T> clazz) {
+        Schema<T> schema = (Schema<T>) SCHEMA_CACHE.get(clazz);
+        if (schema == null) {
+            schema = RuntimeSchema.getSchema(clazz);
+            SCHEMA_CACHE.put(clazz, schema);
+        }
+        return schema;
+    }
+
+    private static Object root(Object object) {
+        if (object == null) {
+            throw new RpcException("Protostuff can not serialize a null root object.");
+        }
+        return isWrapped(object.getClass()) ? new Wrapper(object) : object;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<Object> rootClass(Object object) {
+        return (Class<Object>) (isWrapped(object.getClass()) ? Wrapper.class : object.getClass());
+    }
+
+    /**
+     * JDK 自带类型、数组、枚举无法直接作为 Protostuff 的根对象
+     */
+    private static boolean isWrapped(Class<?> clazz) {
+        return clazz.isPrimitive() || clazz.isArray() || clazz.isEnum() || clazz.getName().startsWith("java.");
+    }
+
+    private static Exception newException(String type, String message) {
+        Optional<Constructor<?>> constructor = EXCEPTION_CONSTRUCTOR_CACHE.computeIfAbsent(type, name -> {
+            try {
+                ClassLoader loader = Thread.currentThread().getContextClassLoader();
+                Class<?> clazz = Class.forName(name, false,
+                        loader != null ? loader : ProtostuffSerialization.class.getClassLoader());
+                if (Exception.class.isAssignableFrom(clazz)) {
+                    return Optional.of(clazz.getConstructor(String.class));
+                }
+            } catch (ClassNotFoundException | NoSuchMethodException | LinkageError ignored) {
+                // 无法还原的异常类型统一使用 RpcException
+            }
+            return Optional.empty();
+        });
+        if (constructor.isPresent()) {
+            try {
+                return (Exception) constructor.get().newInstance(message);
+            } catch (ReflectiveOperationException ignored) {
+                // 构造失败同样使用 RpcException
+            }
+        }
+        return new RpcException(message);
+    }
+
+    /**
+     * {@link RpcResponse} 的 Schema：返回值仍按运行时 Schema 编码，异常只编码类型和信息，不包含堆栈和 cause
+     */
+    private static final class RpcResponseSchema implements Schema<RpcResponse> {
+
+        private final Schema<EncodedResponse> delegate = RuntimeSchema.getSchema(EncodedResponse.class);
+
+        @Override
+        public String getFieldName(int number) {
+            return delegate.getFieldName(number);
+        }
+
+        @Override
+        public int getFieldNumber(String name) {
+            return delegate.getFieldNumber(name);
+        }
+
+        @Override
+        public boolean isInitialized(RpcResponse message) {
+            return true;
+        }
+
+        @Override
+        public RpcResponse newMessage() {
+            return new RpcResponse();
+        }
+
+        @Override
+        public String messageName() {
+            return RpcResponse.class.getSimpleName();
+        }
+
+        @Override
+        public String messageFullName() {
+            return RpcResponse.class.getName();
+        }
+
+        @Override
+        public Class<? super RpcResponse> typeClass() {
+            return RpcResponse.class;
+        }
+
+        @Override
+        public void mergeFrom(Input input, RpcResponse message) throws IOException {
+            EncodedResponse encoded = new EncodedResponse();
+            delegate.mergeFrom(input, encoded);
+            message.setReturnValue(encoded.returnValue);
+            if (encoded.exceptionType != null || encoded.exceptionMessage != null) {
+                message.setExceptionValue(encoded.exceptionType == null ? new RpcException(encoded.exceptionMessage)
+                        : newException(encoded.exceptionType, encoded.exceptionMessage));
+            }
+        }
+
+        @Override
+        public void writeTo(Output output, RpcResponse message) throws IOException {
+            EncodedResponse encoded = new EncodedResponse();
+            encoded.returnValue = message.getReturnValue();
+            Exception exception = message.getExceptionValue();
+            if (exception != null) {
+                encoded.exceptionType = exception.getClass().getName();
+                encoded.exceptionMessage = exception.getMessage();
+            }
+            delegate.writeTo(output, encoded);
+        }
+    }
+
+    /**
+     * {@link RpcResponse} 在线路上的结构，返回值与原有的运行时 Schema 字段编号相同
+     */
+    private static final class EncodedResponse {
+        private Object returnValue;
+        private String exceptionType;
+        private String exceptionMessage;
+    }
+
+    /**
+     * 非 POJO 根对象的包装类
+     */
+    private static final class Wrapper {
+        private Object value;
+
+        Wrapper() {
+        }
+
+        Wrapper(Object value) {
+            this.value = value;
+        }
+    }
+}
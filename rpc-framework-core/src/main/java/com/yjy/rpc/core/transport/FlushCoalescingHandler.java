@@ -0,0 +1,182 @@
+package com.yjy.rpc.core.transport;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.Future;
+
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 合并刷新处理器，把多次 flush 合并为一次系统调用。
+ * <p>
+ * 每次 {@code writeAndFlush} 都会触发一次 write 系统调用，并发高、连接少时系统调用的开销非常明显。
+ * 加入该处理器后，flush 不会立即执行：
+ * <ul>
+ *     <li>正在读取数据时（如服务端在 I/O 线程中直接响应），推迟到 {@code channelReadComplete} 统一刷新；</li>
+ *     <li>否则提交一个刷新任务，同一轮事件循环中已经排队的写入会被一起刷新，
+ *     配置了合并窗口时则在窗口结束后刷新；</li>
+ *     <li>未刷新的消息数达到上限时立即刷新，避免积压过多数据。</li>
+ * </ul>
+ * 需要放在编解码器之后、业务处理器之前，这样统计的是 RpcMessage 的个数。与 Netty 自带的
+ * {@link io.netty.handler.flush.FlushConsolidationHandler} 相比，支持合并窗口并输出统计信息。
+ * <p>
+ * 非共享，保存了连接的刷新状态，只在 I/O 线程中访问。
+ */
+public class FlushCoalescingHandler extends ChannelDuplexHandler {
+
+    /**
+     * 默认未刷新的消息数上限
+     */
+    public static final int DEFAULT_MAX_PENDING_MESSAGES = 256;
+
+    /**
+     * 合并窗口，单位纳秒，0 表示只合并同一轮事件循环中的写入
+     */
+    private final long windowNanos;
+
+    /**
+     * 未刷新的消息数达到该值时立即刷新
+     */
+    private final int maxPendingMessages;
+
+    private final FlushMetrics metrics;
+
+    /**
+     * 上次刷新后写入的消息数
+     */
+    private int pendingMessages;
+
+    /**
+     * 是否有被推迟的 flush
+     */
+    private boolean flushPending;
+
+    private boolean readInProgress;
+
+    private Future<?> scheduledFlush;
+
+    private ChannelHandlerContext ctx;
+
+    private final Runnable flushTask = () -> {
+        scheduledFlush = null;
+        if (flushPending) {
+            flushNow(ctx);
+        }
+    };
+
+    /**
+     * @param windowMicros 合并窗口，单位微秒，0 表示只合并同一轮事件循环中的写入
+     * @param metrics      统计信息
+     */
+    public FlushCoalescingHandler(long windowMicros, FlushMetrics metrics) {
+        this(windowMicros, DEFAULT_MAX_PENDING_MESSAGES, metrics);
+    }
+
+    /**
+     * @param windowMicros       合并窗口，单位微秒，0 表示只合并同一轮事件循环中的写入
+     * @param maxPendingMessages 未刷新的消息数达到该值时立即刷新
+     * @param metrics            统计信息
+     */
+    public FlushCoalescingHandler(long windowMicros, int maxPendingMessages, FlushMetrics metrics) {
+        if (windowMicros < 0) {
+            throw new IllegalArgumentException("windowMicros: " + windowMicros + " (expected: >= 0)");
+        }
+        if (maxPendingMessages <= 0) {
+            throw new IllegalArgumentException("maxPendingMessages: " + maxPendingMessages + " (expected: > 0)");
+        }
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxPendingMessages = maxPendingMessages;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        pendingMessages++;
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        flushPending = true;
+        if (pendingMessages >= maxPendingMessages) {
+            flushNow(ctx);
+        } else if (!readInProgress && scheduledFlush == null) {
+            scheduledFlush = windowNanos == 0 ? ctx.executor().submit(flushTask)
+                    : ctx.executor().schedule(flushTask, windowNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        readInProgress = true;
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        readInProgress = false;
+        // 读取期间推迟的 flush 在这里统一执行，此时还有定时的刷新任务则交给该任务
+        if (flushPending && scheduledFlush == null) {
+            flushNow(ctx);
+        }
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        // 不可写时尽快把已写入的数据刷出去
+        if (!ctx.channel().isWritable()) {
+            flushIfPending(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        flushIfPending(ctx);
+        ctx.fireExceptionCaught(cause);
+    }
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        flushIfPending(ctx);
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        flushIfPending(ctx);
+        ctx.close(promise);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        flushIfPending(ctx);
+    }
+
+    private void flushIfPending(ChannelHandlerContext ctx) {
+        if (flushPending) {
+            flushNow(ctx);
+        }
+    }
+
+    private void flushNow(ChannelHandlerContext ctx) {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        flushPending = false;
+        if (pendingMessages > 0 && metrics != null) {
+            metrics.record(pendingMessages);
+        }
+        pendingMessages = 0;
+        ctx.flush();
+    }
+}
@@ -0,0 +1,46 @@
+package com.yjy.rpc.core.transport;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 合并刷新的统计信息，同一个客户端或服务端的所有连接共用一个实例
+ */
+public class FlushMetrics {
+
+    /**
+     * 实际执行的 flush 次数
+     */
+    private final LongAdder flushes = new LongAdder();
+
+    /**
+     * 写出的消息数
+     */
+    private final LongAdder messages = new LongAdder();
+
+    void record(int messageCount) {
+        flushes.increment();
+        messages.add(messageCount);
+    }
+
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    public long getMessages() {
+        return messages.sum();
+    }
+
+    /**
+     * 平均每次 flush 写出的消息数，越大说明合并的效果越好
+     */
+    public double getMessagesPerFlush() {
+        long flushCount = flushes.sum();
+        return flushCount == 0 ? 0 : (double) messages.sum() / flushCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FlushMetrics(flushes=%d, messages=%d, messagesPerFlush=%.2f)",
+                getFlushes(), getMessages(), getMessagesPerFlush());
+    }
+}
@@ -0,0 +1,85 @@
+package com.yjy.rpc.core.transport;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Netty 的 I/O 实现：Linux 下优先使用原生 epoll（边缘触发、更少的对象分配，支持 SO_REUSEPORT 等选项），
+ * 其他平台或原生库加载失败时回退到 NIO
+ */
+@Slf4j
+public enum NettyTransport {
+
+    EPOLL {
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, String threadName) {
+            return new EpollEventLoopGroup(threads, new DefaultThreadFactory(threadName));
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> socketChannelClass() {
+            return EpollSocketChannel.class;
+        }
+    },
+
+    NIO {
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, String threadName) {
+            return new NioEventLoopGroup(threads, new DefaultThreadFactory(threadName));
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> socketChannelClass() {
+            return NioSocketChannel.class;
+        }
+    };
+
+    /**
+     * 创建事件循环组
+     *
+     * @param threads    线程数，0 表示使用 Netty 的默认值（CPU 核数 * 2）
+     * @param threadName 线程名前缀
+     */
+    public abstract EventLoopGroup newEventLoopGroup(int threads, String threadName);
+
+    public abstract Class<? extends ServerChannel> serverChannelClass();
+
+    public abstract Class<? extends SocketChannel> socketChannelClass();
+
+    /**
+     * 选择 I/O 实现
+     *
+     * @param preferNative 是否优先使用原生 epoll
+     * @return epoll 可用且 preferNative 为 true 时返回 {@link #EPOLL}，否则返回 {@link #NIO}
+     */
+    public static NettyTransport select(boolean preferNative) {
+        if (!preferNative) {
+            return NIO;
+        }
+        if (Epoll.isAvailable()) {
+            return EPOLL;
+        }
+        log.debug("Native epoll is unavailable, fall back to NIO.", Epoll.unavailabilityCause());
+        return NIO;
+    }
+}
@@ -0,0 +1,261 @@
+package com.yjy.rpc.core.codec;
+
+import com.yjy.rpc.core.common.RpcRequest;
+import com.yjy.rpc.core.protocol.RpcMessage;
+import com.yjy.rpc.core.protocol.constant.ProtocolConstants;
+import com.yjy.rpc.core.protocol.enums.CompressionType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RpcFrameDecoderTest {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private final CodecOptions options = CodecOptions.builder()
+            .chunkSize(CHUNK_SIZE)
+            .compressType(CompressionType.NONE)
+            .build();
+
+    @Test
+    public void v1ChunkedMessageRoundTrip() {
+        assertChunkedRoundTrip(ProtocolConstants.VERSION_1, 6);
+    }
+
+    @Test
+    public void v2ChunkedMessageRoundTrip() {
+        assertChunkedRoundTrip(ProtocolConstants.VERSION_2, 7);
+    }
+
+    @Test
+    public void interleavedChunkedMessages() {
+        String first = randomString(4 * CHUNK_SIZE);
+        String second = randomString(4 * CHUNK_SIZE);
+        List<ByteBuf> firstFrames = copy(SharableRpcMessageCodecTest.encode(options,
+                SharableRpcMessageCodecTest.request(ProtocolConstants.VERSION_2, CompressionType.NONE, first)));
+        List<ByteBuf> secondFrames = copy(SharableRpcMessageCodecTest.encode(options,
+                SharableRpcMessageCodecTest.request(ProtocolConstants.VERSION_2, CompressionType.NONE, second)));
+
+        EmbeddedChannel channel = new EmbeddedChannel(new RpcFrameDecoder(options), new SharableRpcMessageCodec(options));
+        for (int i = 0; i < Math.max(firstFrames.size(), secondFrames.size()); i++) {
+            if (i < secondFrames.size()) {
+                channel.writeInbound(secondFrames.get(i));
+            }
+            if (i < firstFrames.size()) {
+                channel.writeInbound(firstFrames.get(i));
+            }
+        }
+
+        List<Object> values = new ArrayList<>();
+        for (RpcMessage message; (message = channel.readInbound()) != null; ) {
+            values.add(((RpcRequest) message.getBody()).getParameterValues()[0]);
+        }
+        assertEquals(2, values.size());
+        assertTrue(values.contains(first));
+        assertTrue(values.contains(second));
+        assertFalse(channel.finish());
+        assertReleased(firstFrames);
+        assertReleased(secondFrames);
+    }
+
+    @Test
+    public void v1FrameOverMaxFrameLengthIsRejected() {
+        assertFrameRejected(ProtocolConstants.VERSION_1);
+    }
+
+    @Test
+    public void v2FrameOverMaxFrameLengthIsRejected() {
+        assertFrameRejected(ProtocolConstants.VERSION_2);
+    }
+
+    @Test
+    public void chunkedMessageOverMaxMessageLengthIsRejected() {
+        CodecOptions limited = CodecOptions.builder()
+                .chunkSize(CHUNK_SIZE)
+                .maxMessageLength(4 * CHUNK_SIZE)
+                .compressType(CompressionType.NONE)
+                .build();
+        List<ByteBuf> frames = copy(SharableRpcMessageCodecTest.encode(limited, SharableRpcMessageCodecTest.request(
+                ProtocolConstants.VERSION_2, CompressionType.NONE, randomString(8 * CHUNK_SIZE))));
+
+        EmbeddedChannel channel = new EmbeddedChannel(new RpcFrameDecoder(limited), new SharableRpcMessageCodec(limited));
+        try {
+            for (ByteBuf frame : frames) {
+                channel.writeInbound(frame);
+            }
+            fail("The chunked message should exceed the max message length.");
+        } catch (TooLongFrameException expected) {
+            // 超出上限的分片消息被丢弃
+        }
+        channel.finishAndReleaseAll();
+        for (ByteBuf frame : frames) {
+            if (frame.refCnt() > 0) {
+                // 异常之后没有写入的帧
+                frame.release();
+            }
+        }
+        assertReleased(frames);
+    }
+
+    @Test
+    public void interleavedMessagesOverMaxMessageLengthAreRejected() {
+        CodecOptions limited = CodecOptions.builder()
+                .chunkSize(CHUNK_SIZE)
+                .maxMessageLength(4 * CHUNK_SIZE)
+                .compressType(CompressionType.NONE)
+                .build();
+        // 每条消息都不超过上限，但同时重组的消息合计超过上限
+        List<ByteBuf> frames = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            List<ByteBuf> message = copy(SharableRpcMessageCodecTest.encode(limited, SharableRpcMessageCodecTest.request(
+                    ProtocolConstants.VERSION_2, CompressionType.NONE, randomString(3 * CHUNK_SIZE))));
+            frames.addAll(message.subList(0, 2));
+            for (ByteBuf frame : message.subList(2, message.size())) {
+                frame.release();
+            }
+        }
+
+        assertRejected(limited, frames);
+    }
+
+    @Test
+    public void tooManyPendingMessagesAreRejected() {
+        ByteBuf first = copy(SharableRpcMessageCodecTest.encode(options, SharableRpcMessageCodecTest.request(
+                ProtocolConstants.VERSION_2, CompressionType.NONE, randomString(2 * CHUNK_SIZE)))).get(0);
+        // 同一个首个分片换用不同的序列号，只打开消息不发送后续分片
+        List<ByteBuf> frames = new ArrayList<>();
+        for (int i = 0; i < 2048; i++) {
+            ByteBuf frame = first.copy();
+            frame.setLong(9, i);
+            frames.add(frame);
+        }
+        first.release();
+
+        assertRejected(options, frames);
+    }
+
+    @Test
+    public void pendingChunksAreReleasedOnHandlerRemoved() {
+        List<ByteBuf> frames = copy(SharableRpcMessageCodecTest.encode(options, SharableRpcMessageCodecTest.request(
+                ProtocolConstants.VERSION_2, CompressionType.NONE, randomString(4 * CHUNK_SIZE))));
+        ByteBuf last = frames.remove(frames.size() - 1);
+
+        EmbeddedChannel channel = new EmbeddedChannel(new RpcFrameDecoder(options), new SharableRpcMessageCodec(options));
+        for (ByteBuf frame : frames) {
+            channel.writeInbound(frame);
+        }
+        assertNull(channel.readInbound());
+        // 重组中的分片仍被引用
+        for (ByteBuf frame : frames) {
+            assertTrue(frame.refCnt() > 0);
+        }
+
+        channel.pipeline().remove(RpcFrameDecoder.class);
+        assertReleased(frames);
+        last.release();
+        assertFalse(channel.finish());
+    }
+
+    private void assertChunkedRoundTrip(byte version, int messageTypeOffset) {
+        String value = randomString(10 * CHUNK_SIZE);
+        RpcMessage message = SharableRpcMessageCodecTest.request(version, CompressionType.NONE, value);
+        List<ByteBuf> frames = copy(SharableRpcMessageCodecTest.encode(options, message));
+
+        assertTrue(frames.size() > 1);
+        for (int i = 0; i < frames.size(); i++) {
+            ByteBuf frame = frames.get(i);
+            boolean hasMore = (frame.getByte(messageTypeOffset) & ProtocolConstants.CHUNK_FLAG) != 0;
+            assertEquals(i < frames.size() - 1, hasMore);
+        }
+
+        RpcMessage decoded = SharableRpcMessageCodecTest.decode(options, frames);
+        assertEquals(message.getHeader().getSequenceId(), decoded.getHeader().getSequenceId());
+        assertEquals(message.getHeader().getMessageType(), decoded.getHeader().getMessageType());
+        assertEquals(value, ((RpcRequest) decoded.getBody()).getParameterValues()[0]);
+        assertReleased(frames);
+    }
+
+    private static void assertFrameRejected(byte version) {
+        CodecOptions unlimited = CodecOptions.builder().chunkSize(0).compressType(CompressionType.NONE).build();
+        List<ByteBuf> frames = copy(SharableRpcMessageCodecTest.encode(unlimited, SharableRpcMessageCodecTest.request(
+                version, CompressionType.NONE, randomString(4 * CHUNK_SIZE))));
+        assertEquals(1, frames.size());
+
+        CodecOptions limited = CodecOptions.builder().maxFrameLength(CHUNK_SIZE).build();
+        EmbeddedChannel channel = new EmbeddedChannel(new RpcFrameDecoder(limited), new SharableRpcMessageCodec(limited));
+        try {
+            channel.writeInbound(frames.get(0));
+            fail("The frame should exceed the max frame length.");
+        } catch (TooLongFrameException expected) {
+            // 长度不可信的帧直接拒绝
+        }
+        assertNull(channel.readInbound());
+        channel.finishAndReleaseAll();
+        assertReleased(frames);
+    }
+
+    private static void assertRejected(CodecOptions options, List<ByteBuf> frames) {
+        EmbeddedChannel channel = new EmbeddedChannel(new RpcFrameDecoder(options), new SharableRpcMessageCodec(options));
+        try {
+            for (ByteBuf frame : frames) {
+                channel.writeInbound(frame);
+            }
+            fail("The chunked messages in progress should exceed the limit.");
+        } catch (TooLongFrameException expected) {
+            // 丢弃所有正在重组的消息
+        }
+        assertNull(channel.readInbound());
+        channel.finishAndReleaseAll();
+        for (ByteBuf frame : frames) {
+            if (frame.refCnt() > 0) {
+                // 异常之后没有写入的帧
+                frame.release();
+            }
+        }
+        assertReleased(frames);
+    }
+
+    /**
+     * 复制为独立的缓冲区，便于检查每一帧是否都被释放。分片时编码器按 协议头、消息体切片 成对输出，合并为完整的帧
+     */
+    private static List<ByteBuf> copy(List<ByteBuf> buffers) {
+        int step = buffers.size() == 1 ? 1 : 2;
+        List<ByteBuf> frames = new ArrayList<>(buffers.size() / step);
+        for (int i = 0; i < buffers.size(); i += step) {
+            ByteBuf frame = Unpooled.buffer();
+            for (int j = i; j < i + step; j++) {
+                frame.writeBytes(buffers.get(j));
+                buffers.get(j).release();
+            }
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    private static void assertReleased(List<ByteBuf> frames) {
+        for (ByteBuf frame : frames) {
+            assertEquals(0, frame.refCnt());
+        }
+    }
+
+    private static String randomString(int length) {
+        Random random = new Random(length);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + random.nextInt(26)));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,251 @@
+package com.yjy.rpc.core.codec;
+
+import com.yjy.rpc.core.common.RpcRequest;
+import com.yjy.rpc.core.common.RpcResponse;
+import com.yjy.rpc.core.protocol.MessageHeader;
+import com.yjy.rpc.core.protocol.RpcMessage;
+import com.yjy.rpc.core.protocol.constant.ProtocolConstants;
+import com.yjy.rpc.core.protocol.enums.CompressionType;
+import com.yjy.rpc.core.protocol.enums.MessageType;
+import com.yjy.rpc.core.protocol.enums.SerializationType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.CorruptedFrameException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SharableRpcMessageCodecTest {
+
+    private final CodecOptions options = CodecOptions.builder().build();
+
+    @Test
+    public void v1RequestRoundTrip() {
+        RpcMessage message = request(ProtocolConstants.VERSION_1, CompressionType.NONE, "hello");
+        message.getHeader().setSequenceId(0xFFFFFFFEL);
+
+        List<ByteBuf> frames = encode(options, message);
+        assertEquals(1, frames.size());
+        ByteBuf frame = frames.get(0);
+        assertEquals(ProtocolConstants.HEADER_LENGTH + frame.getInt(frame.readerIndex() + 12), frame.readableBytes());
+
+        RpcMessage decoded = decode(options, frames);
+        assertHeader(message.getHeader(), decoded.getHeader());
+        assertEquals(0xFFFFFFFEL, decoded.getHeader().getSequenceId());
+        assertRequest((RpcRequest) message.getBody(), (RpcRequest) decoded.getBody());
+    }
+
+    @Test
+    public void v2RequestRoundTrip() {
+        RpcMessage message = request(ProtocolConstants.VERSION_2, CompressionType.NONE, "hello");
+        message.getHeader().setSequenceId(Long.MAX_VALUE - 1);
+        message.getHeader().putAttachment(ProtocolConstants.ATTACHMENT_TIMEOUT, "3000");
+        message.getHeader().putAttachment(ProtocolConstants.ATTACHMENT_TRACE_ID, "trace-1");
+
+        RpcMessage decoded = decode(options, encode(options, message));
+
+        assertHeader(message.getHeader(), decoded.getHeader());
+        assertEquals(Long.MAX_VALUE - 1, decoded.getHeader().getSequenceId());
+        assertEquals("3000", decoded.getHeader().getAttachment(ProtocolConstants.ATTACHMENT_TIMEOUT));
+        assertEquals("trace-1", decoded.getHeader().getAttachment(ProtocolConstants.ATTACHMENT_TRACE_ID));
+        assertRequest((RpcRequest) message.getBody(), (RpcRequest) decoded.getBody());
+    }
+
+    @Test
+    public void v2ResponseRoundTrip() {
+        MessageHeader header = MessageHeader.build(SerializationType.HESSIAN.name(), CompressionType.NONE.name(),
+                ProtocolConstants.VERSION_2);
+        header.setMessageType(MessageType.RESPONSE.getType());
+        RpcResponse response = new RpcResponse();
+        response.setReturnValue("world");
+        RpcMessage message = new RpcMessage();
+        message.setHeader(header);
+        message.setBody(response);
+
+        RpcMessage decoded = decode(options, encode(options, message));
+
+        assertEquals(MessageType.RESPONSE.getType(), decoded.getHeader().getMessageType());
+        assertEquals("world", ((RpcResponse) decoded.getBody()).getReturnValue());
+        assertNull(((RpcResponse) decoded.getBody()).getExceptionValue());
+    }
+
+    @Test
+    public void v2CompressesLargeBodies() {
+        String large = String.join("", Collections.nCopies(2 * ProtocolConstants.DEFAULT_COMPRESS_THRESHOLD, "ab"));
+        RpcMessage message = request(ProtocolConstants.VERSION_2, CompressionType.DEFLATE, large);
+
+        List<ByteBuf> frames = encode(options, message);
+        ByteBuf frame = frames.get(0);
+        assertEquals(CompressionType.DEFLATE.getType(), frame.getByte(frame.readerIndex() + 6));
+        assertTrue(frame.readableBytes() < large.length());
+
+        RpcMessage decoded = decode(options, frames);
+        assertEquals(large, ((RpcRequest) decoded.getBody()).getParameterValues()[0]);
+    }
+
+    @Test
+    public void v1NeverCompresses() {
+        String large = String.join("", Collections.nCopies(2 * ProtocolConstants.DEFAULT_COMPRESS_THRESHOLD, "ab"));
+        RpcMessage message = request(ProtocolConstants.VERSION_1, CompressionType.DEFLATE, large);
+
+        List<ByteBuf> frames = encode(options, message);
+        ByteBuf frame = frames.get(0);
+        // 高 4 位的压缩算法为 0，未升级的对端也能识别序列化算法
+        assertEquals(SerializationType.HESSIAN.getType(), frame.getByte(frame.readerIndex() + 5));
+        assertTrue(frame.readableBytes() > large.length());
+
+        RpcMessage decoded = decode(options, frames);
+        assertEquals(large, ((RpcRequest) decoded.getBody()).getParameterValues()[0]);
+    }
+
+    @Test
+    public void explicitNoneIsNotCompressed() {
+        String large = String.join("", Collections.nCopies(2 * ProtocolConstants.DEFAULT_COMPRESS_THRESHOLD, "ab"));
+        RpcMessage message = request(ProtocolConstants.VERSION_2, CompressionType.NONE, large);
+
+        ByteBuf frame = encode(options, message).get(0);
+        try {
+            assertEquals(CompressionType.NONE.getType(), frame.getByte(frame.readerIndex() + 6));
+        } finally {
+            frame.release();
+        }
+    }
+
+    @Test
+    public void decodesFramesSplitAcrossReads() {
+        RpcMessage v1 = request(ProtocolConstants.VERSION_1, CompressionType.NONE, "one");
+        RpcMessage v2 = request(ProtocolConstants.VERSION_2, CompressionType.NONE, "two");
+        ByteBuf stream = Unpooled.buffer();
+        for (ByteBuf frame : encode(options, v1)) {
+            stream.writeBytes(frame);
+            frame.release();
+        }
+        for (ByteBuf frame : encode(options, v2)) {
+            stream.writeBytes(frame);
+            frame.release();
+        }
+
+        EmbeddedChannel channel = new EmbeddedChannel(new RpcFrameDecoder(options), new SharableRpcMessageCodec(options));
+        // 每次只写入 1 个字节，两个版本的帧在同一连接上混用
+        while (stream.isReadable()) {
+            channel.writeInbound(stream.readRetainedSlice(1));
+        }
+        stream.release();
+
+        RpcMessage first = channel.readInbound();
+        RpcMessage second = channel.readInbound();
+        assertEquals("one", ((RpcRequest) first.getBody()).getParameterValues()[0]);
+        assertEquals("two", ((RpcRequest) second.getBody()).getParameterValues()[0]);
+        assertNull(channel.readInbound());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void attachmentCountBeyondPayloadIsRejected() {
+        // 长度 1 的负载声明了约 2^28 个附加信息
+        assertCorrupt(v2Frame(1, 0xFF, 0xFF, 0xFF, 0x7F));
+        // 超过 2^30 时左移为负数
+        assertCorrupt(v2Frame(1, 0xFF, 0xFF, 0xFF, 0xFF, 0x07));
+    }
+
+    @Test
+    public void attachmentsBeyondPayloadAreRejected() {
+        // 附加信息的值声明了 100 字节，但负载只剩 2 字节
+        assertCorrupt(v2Frame(4, 1, 1, 'k', 100, 'v', 'v'));
+        // 附加信息数量读到了负载之外
+        assertCorrupt(v2Frame(0, 0));
+    }
+
+    static RpcMessage request(byte version, CompressionType compressType, String value) {
+        MessageHeader header = MessageHeader.build(SerializationType.HESSIAN.name(), compressType.name(), version);
+        header.setMessageType(MessageType.REQUEST.getType());
+        RpcRequest request = new RpcRequest();
+        request.setServiceName("com.yjy.rpc.HelloService-1.0");
+        request.setMethod("hello");
+        request.setParameterTypes(new Class<?>[]{String.class});
+        request.setParameterValues(new Object[]{value});
+        RpcMessage message = new RpcMessage();
+        message.setHeader(header);
+        message.setBody(request);
+        return message;
+    }
+
+    static List<ByteBuf> encode(CodecOptions options, RpcMessage message) {
+        EmbeddedChannel channel = new EmbeddedChannel(new SharableRpcMessageCodec(options));
+        assertTrue(channel.writeOutbound(message));
+        List<ByteBuf> frames = new ArrayList<>();
+        for (ByteBuf frame; (frame = channel.readOutbound()) != null; ) {
+            frames.add(frame);
+        }
+        assertFalse(channel.finish());
+        return frames;
+    }
+
+    static RpcMessage decode(CodecOptions options, List<ByteBuf> frames) {
+        EmbeddedChannel channel = new EmbeddedChannel(new RpcFrameDecoder(options), new SharableRpcMessageCodec(options));
+        for (ByteBuf frame : frames) {
+            channel.writeInbound(frame);
+        }
+        RpcMessage message = channel.readInbound();
+        assertNull(channel.readInbound());
+        assertFalse(channel.finish());
+        return message;
+    }
+
+    /**
+     * 构造版本 2 的请求帧，{@code length} 为长度域，其后依次写入 {@code bytes}
+     */
+    private static ByteBuf v2Frame(int length, int... bytes) {
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeBytes(ProtocolConstants.MAGIC_NUM);
+        frame.writeByte(ProtocolConstants.VERSION_2);
+        frame.writeByte(SerializationType.HESSIAN.getType());
+        frame.writeByte(CompressionType.NONE.getType());
+        frame.writeByte(MessageType.REQUEST.getType());
+        frame.writeByte(0);
+        frame.writeLong(1);
+        VarInts.write(frame, length);
+        for (int b : bytes) {
+            frame.writeByte(b);
+        }
+        return frame;
+    }
+
+    private void assertCorrupt(ByteBuf frame) {
+        EmbeddedChannel channel = new EmbeddedChannel(new SharableRpcMessageCodec(options));
+        try {
+            channel.writeInbound(frame);
+            fail("The corrupt frame should be rejected.");
+        } catch (CorruptedFrameException expected) {
+            // 非法的附加信息
+        }
+        assertNull(channel.readInbound());
+        assertFalse(channel.finish());
+        assertEquals(0, frame.refCnt());
+    }
+
+    private static void assertHeader(MessageHeader expected, MessageHeader actual) {
+        assertArrayEquals(ProtocolConstants.MAGIC_NUM, actual.getMagicNum());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getSerializerType(), actual.getSerializerType());
+        assertEquals(expected.getMessageType(), actual.getMessageType());
+        assertEquals(expected.getMessageStatus(), actual.getMessageStatus());
+    }
+
+    private static void assertRequest(RpcRequest expected, RpcRequest actual) {
+        assertEquals(expected.getServiceName(), actual.getServiceName());
+        assertEquals(expected.getMethod(), actual.getMethod());
+        assertArrayEquals(expected.getParameterTypes(), actual.getParameterTypes());
+        assertArrayEquals(expected.getParameterValues(), actual.getParameterValues());
+    }
+}
@@ -0,0 +1,80 @@
+package com.yjy.rpc.core.serialization.hessian;
+
+import com.yjy.rpc.core.common.RpcRequest;
+import com.yjy.rpc.core.exception.RpcException;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class HessianSerializationTest {
+
+    private final HessianSerialization serialization = new HessianSerialization();
+
+    @Test
+    public void requestRoundTrip() {
+        RpcRequest request = request("hello");
+
+        RpcRequest decoded = serialization.deserialize(RpcRequest.class, serialization.serialize(request));
+
+        assertRequest(request, decoded);
+    }
+
+    @Test
+    public void corruptBodyDoesNotBreakLaterDecoding() {
+        byte[] valid = serialization.serialize(request("hello"));
+        // 截断的消息体，以及在对象结束后还有多余数据的消息体
+        byte[][] corrupts = {Arrays.copyOf(valid, valid.length / 2), concat(valid, valid)};
+        for (byte[] corrupt : corrupts) {
+            try {
+                serialization.deserialize(RpcRequest.class, corrupt);
+            } catch (RpcException expected) {
+                // 损坏的消息体解码失败
+            }
+            // 同一线程上后续的消息仍能正常解码
+            for (int i = 0; i < 3; i++) {
+                RpcRequest request = request("hello-" + i);
+                assertRequest(request, serialization.deserialize(RpcRequest.class, serialization.serialize(request)));
+            }
+        }
+    }
+
+    @Test
+    public void invalidTagDoesNotBreakLaterDecoding() {
+        byte[] valid = serialization.serialize(request("hello"));
+        byte[] corrupt = valid.clone();
+        corrupt[0] = 'x';
+        try {
+            serialization.deserialize(RpcRequest.class, corrupt);
+            fail("The corrupt body should not be decoded.");
+        } catch (RuntimeException expected) {
+            // 无法识别的标记
+        }
+        assertRequest(request("world"), serialization.deserialize(RpcRequest.class, serialization.serialize(request("world"))));
+    }
+
+    private static RpcRequest request(String value) {
+        RpcRequest request = new RpcRequest();
+        request.setServiceName("com.yjy.rpc.HelloService-1.0");
+        request.setMethod("hello");
+        request.setParameterTypes(new Class<?>[]{String.class});
+        request.setParameterValues(new Object[]{value});
+        return request;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] bytes = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+
+    private static void assertRequest(RpcRequest expected, RpcRequest actual) {
+        assertEquals(expected.getServiceName(), actual.getServiceName());
+        assertEquals(expected.getMethod(), actual.getMethod());
+        assertArrayEquals(expected.getParameterTypes(), actual.getParameterTypes());
+        assertArrayEquals(expected.getParameterValues(), actual.getParameterValues());
+    }
+}
@@ -0,0 +1,67 @@
+package com.yjy.rpc.core.serialization.protostuff;
+
+import com.yjy.rpc.core.common.RpcResponse;
+import com.yjy.rpc.core.exception.RpcException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ProtostuffSerializationTest {
+
+    private final ProtostuffSerialization serialization = new ProtostuffSerialization();
+
+    @Test
+    public void successResponseRoundTrip() throws Exception {
+        RpcResponse response = new RpcResponse();
+        List<String> value = new ArrayList<>(Arrays.asList("a", "b"));
+        response.setReturnValue(value);
+
+        RpcResponse decoded = roundTrip(response);
+
+        assertEquals(value, decoded.getReturnValue());
+        assertNull(decoded.getExceptionValue());
+    }
+
+    @Test
+    public void failureResponseRoundTrip() throws Exception {
+        RpcResponse response = new RpcResponse();
+        response.setExceptionValue(new IllegalStateException("boom", new RuntimeException("cause")));
+
+        RpcResponse decoded = roundTrip(response);
+
+        assertNull(decoded.getReturnValue());
+        assertTrue(decoded.getExceptionValue() instanceof IllegalStateException);
+        assertEquals("boom", decoded.getExceptionValue().getMessage());
+    }
+
+    @Test
+    public void unknownExceptionTypeFallsBackToRpcException() {
+        RpcResponse response = new RpcResponse();
+        response.setExceptionValue(new NoStringConstructorException());
+
+        RpcResponse decoded = serialization.deserialize(RpcResponse.class, serialization.serialize(response));
+
+        assertTrue(decoded.getExceptionValue() instanceof RpcException);
+        assertEquals("no string constructor", decoded.getExceptionValue().getMessage());
+    }
+
+    private RpcResponse roundTrip(RpcResponse response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serialization.serialize(response, out);
+        return serialization.deserialize(RpcResponse.class, new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static class NoStringConstructorException extends Exception {
+        NoStringConstructorException() {
+            super("no string constructor");
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.yjy.rpc.server.annotation;
 
+import com.yjy.rpc.server.dispatch.DispatchStrategy;
+
 import java.lang.annotation.*;
 /**
  * Rpc Service 注解，标注该类为服务实现类
@@ -25,5 +27,35 @@ public @interface RpcService {
      */
     String version() default "1.0";
 
+    /**
+     * 请求的分发策略，默认在共享线程池中执行
+     */
+    DispatchStrategy dispatch() default DispatchStrategy.SHARED;
+
+    /**
+     * {@link DispatchStrategy#ISOLATED} 时独占线程池的线程数，默认 0 表示与共享线程池相同
+     */
+    int threads() default 0;
+
+    /**
+     * {@link DispatchStrategy#ISOLATED} 时独占线程池的队列长度，默认 0 表示与共享线程池相同
+     */
+    int queueSize() default 0;
+
+    /**
+     * 是否按请求耗时自适应地限制并发，超过上限的请求直接返回过载错误，默认跟随服务端配置
+     */
+    boolean adaptiveLimit() default false;
+
+    /**
+     * 自适应限流的初始并发上限，默认 0 表示使用服务端配置
+     */
+    int initialLimit() default 0;
+
+    /**
+     * 自适应限流的最大并发上限，默认 0 表示使用服务端配置
+     */
+    int maxLimit() default 0;
+
 }
 
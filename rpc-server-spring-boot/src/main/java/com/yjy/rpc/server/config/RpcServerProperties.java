@@ -1,5 +1,6 @@
 package com.yjy.rpc.server.config;
 
+import com.yjy.rpc.core.protocol.constant.ProtocolConstants;
 import lombok.Data;
 
 import java.net.InetAddress;
@@ -39,6 +40,121 @@ public class RpcServerProperties {
      */
     private String registryAddr;
 
+    /**
+     * Maximum length of a single protocol frame in bytes, 8MB by default
+     */
+    private Integer maxFrameLength;
+
+    /**
+     * Maximum length of a message reassembled from chunked frames in bytes, 64MB by default
+     */
+    private Integer maxMessageLength;
+
+    /**
+     * Message bodies larger than this are split into chunked frames, 256KB by default, 0 disables chunking
+     */
+    private Integer chunkSize;
+
+    /**
+     * Compression algorithm for protocol version 2 responses whose request was not compressed, such as none, deflate
+     * or snappy, deflate by default. Version 1 responses are never compressed
+     */
+    private String compression;
+
+    /**
+     * Message bodies of at least this size are compressed, 4KB by default
+     */
+    private Integer compressThreshold;
+
+    /**
+     * Whether to coalesce flushes of responses written in the same event loop tick, false by default
+     */
+    private Boolean flushConsolidation;
+
+    /**
+     * Extra time in microseconds to wait for more responses before flushing, 0 by default (same tick only)
+     */
+    private Integer flushWindowMicros;
+
+    /**
+     * Whether to prefer the native epoll transport, falling back to NIO when unavailable, true by default
+     */
+    private Boolean nativeTransport;
+
+    /**
+     * Number of acceptor (boss) threads, 1 by default
+     */
+    private Integer bossThreads;
+
+    /**
+     * Number of I/O worker threads, 0 by default (twice the number of CPU cores)
+     */
+    private Integer workerThreads;
+
+    /**
+     * The local address the server binds to, null by default which means {@link InetAddress#getLocalHost()}
+     */
+    private String bindAddress;
+
+    /**
+     * Maximum length of the queue of fully established connections waiting to be accepted, 128 by default
+     */
+    private Integer backlog;
+
+    /**
+     * Number of server channels bound on the same port with SO_REUSEPORT so that the kernel spreads accepts
+     * across them, only effective with the native epoll transport, 1 by default
+     */
+    private Integer acceptors;
+
+    /**
+     * Number of threads of the shared dispatch pool, also the default size of isolated service pools, 10 by default
+     */
+    private Integer dispatchThreads;
+
+    /**
+     * Queue length of the shared dispatch pool, also the default of isolated service pools, 1000 by default
+     */
+    private Integer dispatchQueueSize;
+
+    /**
+     * Whether to limit the concurrency of every service adaptively from the observed latency, failing fast
+     * above the limit, false by default (only services with {@code @RpcService(adaptiveLimit = true)})
+     */
+    private Boolean adaptiveLimit;
+
+    /**
+     * Initial concurrency limit of each adaptively limited service, 20 by default
+     */
+    private Integer initialConcurrencyLimit;
+
+    /**
+     * Maximum concurrency limit of each adaptively limited service, 200 by default
+     */
+    private Integer maxConcurrencyLimit;
+
+    /**
+     * Stop reading from connections when this many requests are waiting in the dispatch pools,
+     * 0 by default which disables read backpressure
+     */
+    private Integer dispatchHighWaterMark;
+
+    /**
+     * Resume reading when the waiting requests drop to this number, 0 by default (half of the high water mark)
+     */
+    private Integer dispatchLowWaterMark;
+
+    /**
+     * Whether to stop reading from all connections above the high water mark, otherwise only the connection that
+     * submitted the request, false by default
+     */
+    private Boolean pauseAllChannels;
+
+    /**
+     * Whether to deserialize request bodies on the dispatch threads instead of the I/O threads, false by default
+     */
+    private Boolean lazyDecoding;
+
     /**
      * 进行默认初始化值
      */
@@ -49,5 +165,26 @@ public class RpcServerProperties {
         this.registry = "zookeeper";
         this.transport = "netty";
         this.registryAddr = "127.0.0.1:2181";
+        this.maxFrameLength = ProtocolConstants.DEFAULT_MAX_FRAME_LENGTH;
+        this.maxMessageLength = ProtocolConstants.DEFAULT_MAX_MESSAGE_LENGTH;
+        this.chunkSize = ProtocolConstants.DEFAULT_CHUNK_SIZE;
+        this.compression = "deflate";
+        this.compressThreshold = ProtocolConstants.DEFAULT_COMPRESS_THRESHOLD;
+        this.flushConsolidation = false;
+        this.flushWindowMicros = 0;
+        this.nativeTransport = true;
+        this.bossThreads = 1;
+        this.workerThreads = 0;
+        this.backlog = 128;
+        this.acceptors = 1;
+        this.dispatchThreads = 10;
+        this.dispatchQueueSize = 1000;
+        this.lazyDecoding = false;
+        this.adaptiveLimit = false;
+        this.initialConcurrencyLimit = 20;
+        this.maxConcurrencyLimit = 200;
+        this.dispatchHighWaterMark = 0;
+        this.dispatchLowWaterMark = 0;
+        this.pauseAllChannels = false;
     }
 }
@@ -0,0 +1,27 @@
+package com.yjy.rpc.server.dispatch;
+
+/**
+ * 服务端请求的分发策略，决定服务方法在哪个线程中执行
+ */
+public enum DispatchStrategy {
+
+    /**
+     * 直接在 I/O 线程中执行，没有线程切换的开销，只适用于耗时极短且不会阻塞的服务
+     */
+    DIRECT,
+
+    /**
+     * 在所有服务共用的线程池中执行
+     */
+    SHARED,
+
+    /**
+     * 在服务独占的线程池中执行，慢服务占满线程池不会影响其他服务（舱壁隔离）
+     */
+    ISOLATED,
+
+    /**
+     * 每个请求一个虚拟线程，需要 JDK 21 及以上，低版本回退到 {@link #SHARED}
+     */
+    VIRTUAL
+}
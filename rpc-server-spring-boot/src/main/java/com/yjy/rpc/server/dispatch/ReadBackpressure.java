@@ -0,0 +1,185 @@
+package com.yjy.rpc.server.dispatch;
+
+import io.netty.channel.Channel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于排队请求数的读背压：分发到线程池但还没开始执行的请求数达到高水位时，关闭连接的 autoRead，
+ * 不再从 socket 读取新的请求；降到低水位时恢复读取。暂停期间数据堆积在内核的接收缓冲区，
+ * 由 TCP 流量控制让客户端放慢发送，而不是在服务端排队或拒绝请求。
+ * <p>
+ * 默认只暂停提交请求时使请求数超过高水位的连接，也可以暂停所有连接。同一个服务端的所有连接共用一个实例。
+ * 每个连接在被暂停前都可能再提交一个请求，线程池的队列长度应当大于高水位加上连接数，被拒绝的请求仍然直接返回失败。
+ */
+@Slf4j
+public class ReadBackpressure {
+
+    /**
+     * 高水位，排队的请求数达到该值时暂停读取
+     */
+    private final int highWaterMark;
+
+    /**
+     * 低水位，排队的请求数降到该值时恢复读取
+     */
+    private final int lowWaterMark;
+
+    /**
+     * 是否暂停所有连接，否则只暂停提交请求的连接
+     */
+    private final boolean pauseAll;
+
+    /**
+     * 已分发、还没开始执行的请求数
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * 所有活跃的连接，只在暂停所有连接时使用
+     */
+    private final Set<Channel> channels = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 已暂停读取的连接
+     */
+    private final Set<Channel> pausedChannels = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 累计暂停次数
+     */
+    private final LongAdder pauses = new LongAdder();
+
+    /**
+     * @param highWaterMark 高水位，排队的请求数达到该值时暂停读取
+     * @param lowWaterMark  低水位，排队的请求数降到该值时恢复读取
+     * @param pauseAll      是否暂停所有连接
+     * @throws IllegalArgumentException 水位设置不合法
+     */
+    public ReadBackpressure(int highWaterMark, int lowWaterMark, boolean pauseAll) {
+        if (highWaterMark <= 0 || lowWaterMark < 0 || lowWaterMark >= highWaterMark) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid water marks: high %d, low %d.", highWaterMark, lowWaterMark));
+        }
+        this.highWaterMark = highWaterMark;
+        this.lowWaterMark = lowWaterMark;
+        this.pauseAll = pauseAll;
+    }
+
+    /**
+     * 连接建立
+     */
+    public void register(Channel channel) {
+        if (pauseAll) {
+            channels.add(channel);
+        }
+    }
+
+    /**
+     * 连接关闭
+     */
+    public void unregister(Channel channel) {
+        channels.remove(channel);
+        pausedChannels.remove(channel);
+    }
+
+    /**
+     * 包装即将提交到线程池的任务：计入排队请求数，达到高水位时暂停读取；任务开始执行时计数减一，降到低水位时恢复读取。
+     * 任务被线程池拒绝时必须调用 {@link #rejected()}
+     *
+     * @param channel 请求所在的连接
+     * @param task    执行请求的任务
+     * @return 包装后的任务
+     */
+    public Runnable wrap(Channel channel, Runnable task) {
+        if (pending.incrementAndGet() >= highWaterMark) {
+            pause(channel);
+        }
+        return () -> {
+            release();
+            task.run();
+        };
+    }
+
+    /**
+     * 任务被线程池拒绝，没有执行
+     */
+    public void rejected() {
+        release();
+    }
+
+    private void release() {
+        if (pending.decrementAndGet() <= lowWaterMark && !pausedChannels.isEmpty()) {
+            resume();
+        }
+    }
+
+    private void pause(Channel channel) {
+        if (pauseAll) {
+            for (Channel ch : channels) {
+                pause0(ch);
+            }
+        } else {
+            pause0(channel);
+        }
+        // 暂停期间所有任务可能已经开始执行，不会再有人触发恢复，这里再检查一次
+        if (pending.get() <= lowWaterMark) {
+            resume();
+        }
+    }
+
+    private void pause0(Channel channel) {
+        if (!channel.isActive()) {
+            return;
+        }
+        // setAutoRead 是线程安全的，先关闭读取再登记，恢复时不会漏掉
+        channel.config().setAutoRead(false);
+        if (pausedChannels.add(channel)) {
+            pauses.increment();
+            log.debug("Pause reading from the channel [{}], {} requests are pending.", channel, pending.get());
+        }
+    }
+
+    private void resume() {
+        for (Channel channel : pausedChannels) {
+            if (pausedChannels.remove(channel)) {
+                channel.config().setAutoRead(true);
+                // setAutoRead 触发的 read 可能被 FlowControlHandler 用暂存的消息满足而不再传到 socket，
+                // 再发起一次 read，保证重新注册读事件
+                channel.read();
+                log.debug("Resume reading from the channel [{}].", channel);
+            }
+        }
+    }
+
+    /**
+     * 已分发、还没开始执行的请求数
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * 当前暂停读取的连接数
+     */
+    public int getPausedChannels() {
+        return pausedChannels.size();
+    }
+
+    /**
+     * 累计暂停次数
+     */
+    public long getPauses() {
+        return pauses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ReadBackpressure(pending=%d, pausedChannels=%d, pauses=%d)",
+                getPending(), getPausedChannels(), getPauses());
+    }
+}
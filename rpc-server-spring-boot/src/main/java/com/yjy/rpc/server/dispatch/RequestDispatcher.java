@@ -0,0 +1,211 @@
+package com.yjy.rpc.server.dispatch;
+
+import com.yjy.rpc.server.annotation.RpcService;
+import com.yjy.rpc.server.limit.GradientLimiter;
+import com.yjy.rpc.server.serviceCache.LocalServiceCache;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求分发器，按服务实现类上 {@link RpcService#dispatch()} 指定的策略选择执行请求的线程。
+ * <p>
+ * 共享线程池、服务独占线程池都是有界的，队列满时 {@link Executor#execute(Runnable)} 抛出
+ * {@link java.util.concurrent.RejectedExecutionException}，由调用方直接返回失败响应。
+ * 每个服务的执行器在第一次请求时创建并缓存。服务开启自适应限流时，还会为其创建 {@link GradientLimiter}。
+ */
+@Slf4j
+public class RequestDispatcher {
+
+    /**
+     * 在当前线程（I/O 线程）中直接执行
+     */
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+    /**
+     * 默认线程池大小
+     */
+    private final int threads;
+
+    /**
+     * 默认线程池队列长度
+     */
+    private final int queueSize;
+
+    /**
+     * 所有服务共用的线程池
+     */
+    private final ExecutorService sharedExecutor;
+
+    /**
+     * 每个请求一个虚拟线程的执行器，JDK 21 以下为 null
+     */
+    private final ExecutorService virtualExecutor;
+
+    /**
+     * 服务名 -- 执行器
+     */
+    private final Map<String, Executor> executors = new ConcurrentHashMap<>();
+
+    /**
+     * 服务名 -- 服务独占的线程池
+     */
+    private final Map<String, ExecutorService> isolatedExecutors = new ConcurrentHashMap<>();
+
+    /**
+     * 是否为所有服务开启自适应限流
+     */
+    private final boolean adaptiveLimit;
+
+    /**
+     * 自适应限流的默认初始上限、最大上限
+     */
+    private final int initialLimit;
+
+    private final int maxLimit;
+
+    /**
+     * 服务名 -- 自适应限流器，服务不限流时为 {@link Optional#empty()}
+     */
+    private final Map<String, Optional<GradientLimiter>> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * @param threads   共享线程池的线程数，也是服务独占线程池的默认线程数
+     * @param queueSize 共享线程池的队列长度，也是服务独占线程池的默认队列长度
+     */
+    public RequestDispatcher(int threads, int queueSize) {
+        this(threads, queueSize, false, 20, 200);
+    }
+
+    /**
+     * @param threads       共享线程池的线程数，也是服务独占线程池的默认线程数
+     * @param queueSize     共享线程池的队列长度，也是服务独占线程池的默认队列长度
+     * @param adaptiveLimit 是否为所有服务开启自适应限流，否则只对 {@link RpcService#adaptiveLimit()} 的服务开启
+     * @param initialLimit  自适应限流的默认初始并发上限
+     * @param maxLimit      自适应限流的默认最大并发上限
+     */
+    public RequestDispatcher(int threads, int queueSize, boolean adaptiveLimit, int initialLimit, int maxLimit) {
+        this.threads = threads;
+        this.queueSize = queueSize;
+        this.adaptiveLimit = adaptiveLimit;
+        this.initialLimit = initialLimit;
+        this.maxLimit = maxLimit;
+        this.sharedExecutor = newPool(threads, queueSize, "rpc-server-shared");
+        this.virtualExecutor = newVirtualThreadExecutor();
+    }
+
+    /**
+     * 获取执行服务请求的执行器
+     *
+     * @param serviceName 服务名称，为 null 或服务不存在时使用共享线程池
+     */
+    public Executor executor(String serviceName) {
+        if (serviceName == null) {
+            return sharedExecutor;
+        }
+        Executor executor = executors.get(serviceName);
+        if (executor == null) {
+            Object service = LocalServiceCache.getService(serviceName);
+            if (service == null) {
+                // 服务不存在时不缓存，由共享线程池返回错误信息
+                return sharedExecutor;
+            }
+            executor = executors.computeIfAbsent(serviceName, name -> createExecutor(name, service));
+        }
+        return executor;
+    }
+
+    /**
+     * 获取服务的自适应限流器
+     *
+     * @param serviceName 服务名称
+     * @return 限流器，服务不存在或不限流时返回 null
+     */
+    public GradientLimiter limiter(String serviceName) {
+        Optional<GradientLimiter> limiter = limiters.get(serviceName);
+        if (limiter == null) {
+            Object service = LocalServiceCache.getService(serviceName);
+            if (service == null) {
+                return null;
+            }
+            limiter = limiters.computeIfAbsent(serviceName, name -> Optional.ofNullable(createLimiter(name, service)));
+        }
+        return limiter.orElse(null);
+    }
+
+    private GradientLimiter createLimiter(String serviceName, Object service) {
+        RpcService rpcService = service.getClass().getAnnotation(RpcService.class);
+        if (!adaptiveLimit && (rpcService == null || !rpcService.adaptiveLimit())) {
+            return null;
+        }
+        int max = rpcService != null && rpcService.maxLimit() > 0 ? rpcService.maxLimit() : maxLimit;
+        int initial = Math.min(max, rpcService != null && rpcService.initialLimit() > 0
+                ? rpcService.initialLimit() : initialLimit);
+        log.debug("The service [{}] uses the adaptive concurrency limit, initial {}, max {}.", serviceName, initial, max);
+        return new GradientLimiter(initial, 1, max);
+    }
+
+    private Executor createExecutor(String serviceName, Object service) {
+        RpcService rpcService = service.getClass().getAnnotation(RpcService.class);
+        DispatchStrategy strategy = rpcService == null ? DispatchStrategy.SHARED : rpcService.dispatch();
+        log.debug("The service [{}] uses the {} dispatch strategy.", serviceName, strategy);
+        switch (strategy) {
+            case DIRECT:
+                return DIRECT_EXECUTOR;
+            case ISOLATED:
+                ExecutorService pool = newPool(rpcService.threads() > 0 ? rpcService.threads() : threads,
+                        rpcService.queueSize() > 0 ? rpcService.queueSize() : queueSize, "rpc-service-" + serviceName);
+                isolatedExecutors.put(serviceName, pool);
+                return pool;
+            case VIRTUAL:
+                if (virtualExecutor != null) {
+                    return virtualExecutor;
+                }
+                log.warn("Virtual threads require JDK 21+, the service [{}] falls back to the shared pool.", serviceName);
+                return sharedExecutor;
+            case SHARED:
+            default:
+                return sharedExecutor;
+        }
+    }
+
+    /**
+     * 关闭所有线程池
+     */
+    public void shutdown() {
+        sharedExecutor.shutdown();
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdown();
+        }
+        for (ExecutorService pool : isolatedExecutors.values()) {
+            pool.shutdown();
+        }
+    }
+
+    private static ExecutorService newPool(int threads, int queueSize, String threadName) {
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize),
+                new DefaultThreadFactory(threadName));
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器，保持 JDK 8 的编译兼容
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -5,11 +5,11 @@ import com.yjy.rpc.core.exception.RpcException;
 import com.yjy.rpc.server.serviceCache.LocalServiceCache;
 import lombok.extern.slf4j.Slf4j;
 
-import java.lang.reflect.Method;
 /**
  * Rpc 请求调用处理器
  * 根据请求，去本地缓存serviceMap中拿到当初注册的实现类对象
  * 反射获得clazz获得方法，调用方法，得到object结果
+ * 方法在服务注册时已由 {@link ServiceMethodRegistry} 解析为方法句柄，请求处理时不再反射查找
  */
 @Slf4j
 public class RpcRequestHandler {
@@ -23,16 +23,35 @@ public class RpcRequestHandler {
      */
     public Object handleRpcRequest(RpcRequest request) throws Exception {
         // 反射调用 RpcRequest 请求指定的方法
+        return resolve(request.getServiceName(), request.getMethod(), request.getParameterTypes())
+                .invoke(request.getParameterValues());
+    }
+
+    /**
+     * 查找请求的服务实例和方法
+     *
+     * @param serviceName    服务名称
+     * @param methodName     方法名称
+     * @param parameterTypes 参数类型
+     * @return 已解析的服务方法
+     * @throws RpcException          服务不存在
+     * @throws NoSuchMethodException 方法不存在
+     */
+    public ServiceMethod resolve(String serviceName, String methodName, Class<?>[] parameterTypes)
+            throws NoSuchMethodException {
+        // 服务加入本地缓存时已经解析好所有方法，这里只需一次查找
+        ServiceMethod serviceMethod = ServiceMethodRegistry.get(serviceName, methodName, parameterTypes);
+        if (serviceMethod != null) {
+            return serviceMethod;
+        }
         // 获取请求服务实例
-        Object service = LocalServiceCache.getService(request.getServiceName());
+        Object service = LocalServiceCache.getService(serviceName);
         if (service == null) {
-            log.error("The service [{}] is not exist!", request.getServiceName());
-            throw new RpcException(String.format("The service [%s] is not exist!", request.getServiceName()));
+            log.error("The service [{}] is not exist!", serviceName);
+            throw new RpcException(String.format("The service [%s] is not exist!", serviceName));
         }
-        // 获取指定的方法
-        Method method = service.getClass().getMethod(request.getMethod(), request.getParameterTypes());
-        // 调用方法并返回结果
-        return method.invoke(service, request.getParameterValues());
+        throw new NoSuchMethodException(String.format("The method [%s] of the service [%s] is not exist!",
+                methodName, serviceName));
     }
 
 }
@@ -0,0 +1,71 @@
+package com.yjy.rpc.server.handler;
+
+import com.yjy.rpc.core.exception.RpcException;
+import lombok.Getter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * 已解析的服务方法：服务实例 + 方法，调用时无需再查找服务和方法。
+ * <p>
+ * 创建时把方法转换为绑定了服务实例的 {@link MethodHandle}，并统一适配为 {@code (Object[])Object} 的签名，
+ * 调用时不再有 {@link Method#invoke(Object, Object...)} 的访问检查，方法抛出的异常也不会被包装成
+ * {@link java.lang.reflect.InvocationTargetException}。
+ */
+@Getter
+public class ServiceMethod {
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private final Object service;
+
+    private final Method method;
+
+    /**
+     * 绑定了服务实例的方法句柄，签名为 {@code (Object[])Object}
+     */
+    private final MethodHandle invoker;
+
+    public ServiceMethod(Object service, Method method) {
+        this.service = service;
+        this.method = method;
+        this.invoker = createInvoker(service, method);
+    }
+
+    /**
+     * 调用方法
+     *
+     * @param args 方法参数
+     * @return 方法调用结果
+     * @throws Exception 方法抛出的异常
+     */
+    public Object invoke(Object[] args) throws Exception {
+        try {
+            return invoker.invokeExact(args);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RpcException(e);
+        }
+    }
+
+    private static MethodHandle createInvoker(Object service, Method method) {
+        try {
+            // 服务实现类不是 public 时也能调用
+            method.setAccessible(true);
+        } catch (RuntimeException e) {
+            // 无法打开访问权限时按原有权限调用
+        }
+        try {
+            return MethodHandles.lookup().unreflect(method)
+                    .bindTo(service)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(INVOKER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new RpcException(String.format("The method [%s] is not accessible.", method), e);
+        }
+    }
+}
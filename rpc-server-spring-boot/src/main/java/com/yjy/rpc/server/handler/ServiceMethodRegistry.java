@@ -0,0 +1,101 @@
+package com.yjy.rpc.server.handler;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 服务方法注册表：服务名 + 方法签名 -- 已解析的服务方法。
+ * <p>
+ * 服务加入 {@link com.yjy.rpc.server.serviceCache.LocalServiceCache} 时，一次性解析实现类的所有 public 方法，
+ * 请求处理时只需要一次 Map 查找，不再调用 {@link Class#getMethod(String, Class[])}。
+ * 实现泛型接口时生成的桥接方法也会注册，客户端按接口擦除后的参数类型也能找到方法。
+ */
+@Slf4j
+public final class ServiceMethodRegistry {
+
+    private static final Map<MethodKey, ServiceMethod> METHODS = new ConcurrentHashMap<>();
+
+    private ServiceMethodRegistry() {
+    }
+
+    /**
+     * 注册服务实例的所有 public 方法
+     */
+    public static void register(String serviceName, Object service) {
+        for (Method method : service.getClass().getMethods()) {
+            if (method.getDeclaringClass() == Object.class || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            MethodKey key = new MethodKey(serviceName, method.getName(), method.getParameterTypes());
+            ServiceMethod existing = METHODS.get(key);
+            // 协变返回类型会产生同签名的桥接方法，优先使用实际的方法
+            if (existing == null || existing.getMethod().isBridge() && !method.isBridge()) {
+                METHODS.put(key, new ServiceMethod(service, method));
+            }
+        }
+        log.debug("The methods of the service [{}] were registered.", serviceName);
+    }
+
+    /**
+     * 移除服务的所有方法
+     */
+    public static void unregister(String serviceName) {
+        METHODS.keySet().removeIf(key -> key.serviceName.equals(serviceName));
+    }
+
+    /**
+     * 查找服务方法
+     *
+     * @return 已解析的服务方法，不存在时返回 null
+     */
+    public static ServiceMethod get(String serviceName, String methodName, Class<?>[] parameterTypes) {
+        return METHODS.get(new MethodKey(serviceName, methodName, parameterTypes));
+    }
+
+    /**
+     * 方法签名：服务名 + 方法名 + 参数类型
+     */
+    private static final class MethodKey {
+
+        private final String serviceName;
+
+        private final String method;
+
+        private final Class<?>[] parameterTypes;
+
+        private final int hash;
+
+        MethodKey(String serviceName, String method, Class<?>[] parameterTypes) {
+            this.serviceName = serviceName;
+            this.method = method;
+            // 无参方法的参数类型可能为 null，与空数组视为相同
+            this.parameterTypes = parameterTypes == null ? new Class<?>[0] : parameterTypes;
+            this.hash = 31 * (31 * Objects.hashCode(serviceName) + Objects.hashCode(method))
+                    + Arrays.hashCode(this.parameterTypes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MethodKey)) {
+                return false;
+            }
+            MethodKey that = (MethodKey) o;
+            return Objects.equals(serviceName, that.serviceName) && Objects.equals(method, that.method)
+                    && Arrays.equals(parameterTypes, that.parameterTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
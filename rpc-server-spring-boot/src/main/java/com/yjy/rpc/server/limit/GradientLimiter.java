@@ -0,0 +1,160 @@
+package com.yjy.rpc.server.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于延迟梯度的自适应并发限制，思路与 TCP Vegas 类似：把一段时间内的最小耗时当作无负载时的耗时，
+ * 当前耗时明显变长说明请求开始排队，按两者的比值（梯度）收缩并发上限；耗时稳定时每次增加 sqrt(limit) 的余量继续探测。
+ * <p>
+ * 超过并发上限的请求不再排队，由调用方直接返回过载错误，避免一个变慢的服务拖垮所有请求的延迟。
+ * 耗时从请求被接受开始计算，包含在线程池中排队的时间。
+ */
+public class GradientLimiter {
+
+    /**
+     * 当前耗时可以比无负载耗时长多少而不收缩上限
+     */
+    private static final double TOLERANCE = 1.5;
+
+    /**
+     * 新上限的平滑系数
+     */
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * 最小耗时的统计周期（样本数），服务本身变慢（而不是排队）时，两个周期后无负载耗时就会跟着变大
+     */
+    private static final int PROBE_INTERVAL = 1000;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    /**
+     * 正在执行（含排队）的请求数
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * 被拒绝的请求数
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * 当前并发上限，由 {@link #estimatedLimit} 取整
+     */
+    private volatile int limit;
+
+    /**
+     * 以下字段只在 {@link #update(long, int)} 中读写
+     */
+    private double estimatedLimit;
+
+    /**
+     * 当前探测周期、上一个探测周期内的最小耗时，两者中的较小值作为无负载耗时的估计值
+     */
+    private long windowMinRtt = Long.MAX_VALUE;
+
+    private long previousMinRtt = Long.MAX_VALUE;
+
+    private int samples;
+
+    /**
+     * @param initialLimit 初始并发上限
+     * @param minLimit     最小并发上限
+     * @param maxLimit     最大并发上限
+     * @throws IllegalArgumentException 上限设置不合法
+     */
+    public GradientLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit <= 0 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException(String.format("Invalid concurrency limits: initial %d, min %d, max %d.",
+                    initialLimit, minLimit, maxLimit));
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * 尝试接受一个请求
+     *
+     * @return 是否接受，接受后必须调用 {@link #release(long)} 或 {@link #cancel()}
+     */
+    public boolean tryAcquire() {
+        for (; ; ) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 请求执行完成，用本次耗时调整并发上限
+     *
+     * @param rttNanos 请求从被接受到执行完成的耗时
+     */
+    public void release(long rttNanos) {
+        int current = inFlight.getAndDecrement();
+        update(Math.max(rttNanos, 1), current);
+    }
+
+    /**
+     * 请求被接受后没有执行（如线程池拒绝），只归还名额，不作为样本
+     */
+    public void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    private synchronized void update(long rtt, int current) {
+        if (++samples == PROBE_INTERVAL) {
+            samples = 0;
+            previousMinRtt = windowMinRtt;
+            windowMinRtt = Long.MAX_VALUE;
+        }
+        windowMinRtt = Math.min(windowMinRtt, rtt);
+        long noLoadRtt = Math.min(windowMinRtt, previousMinRtt);
+        // 请求量没有达到上限的一半时，耗时无法反映上限是否合适，不调整
+        if (current < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * noLoadRtt / rtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    /**
+     * 当前并发上限
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 正在执行（含排队）的请求数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 累计被拒绝的请求数
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GradientLimiter(limit=%d, inFlight=%d, rejected=%d)",
+                getLimit(), getInFlight(), getRejected());
+    }
+}
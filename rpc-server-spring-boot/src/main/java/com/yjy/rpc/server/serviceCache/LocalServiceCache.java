@@ -1,5 +1,6 @@
 package com.yjy.rpc.server.serviceCache;
 
+import com.yjy.rpc.server.handler.ServiceMethodRegistry;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Map;
@@ -17,6 +18,8 @@ public class LocalServiceCache {
 
     public static void addService(String serviceName, Object obj) {
         serviceMap.put(serviceName, obj);
+        // 预先解析服务的所有方法
+        ServiceMethodRegistry.register(serviceName, obj);
         log.info("Service [{}] was successfully added to the local cache.", serviceName);
     }
 
@@ -26,6 +29,7 @@ public class LocalServiceCache {
 
     public static void removeService(String serviceName) {
         serviceMap.remove(serviceName);
+        ServiceMethodRegistry.unregister(serviceName);
         log.info("Service [{}] was removed from local cache", serviceName);
     }
 
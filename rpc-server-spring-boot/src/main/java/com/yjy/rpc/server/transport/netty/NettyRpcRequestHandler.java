@@ -1,88 +1,495 @@
 package com.yjy.rpc.server.transport.netty;
 
 import com.yjy.rpc.core.common.RpcRequest;
+import com.yjy.rpc.core.codec.EncodedBody;
 import com.yjy.rpc.core.common.RpcResponse;
 import com.yjy.rpc.core.exception.RpcException;
+import com.yjy.rpc.core.exception.RpcOverloadException;
 import com.yjy.rpc.core.protocol.constant.ProtocolConstants;
+import com.yjy.rpc.core.protocol.enums.CompressionType;
 import com.yjy.rpc.core.protocol.enums.MessageStatus;
 import com.yjy.rpc.core.protocol.enums.MessageType;
 import com.yjy.rpc.core.factory.SingletonFactory;
 import com.yjy.rpc.core.protocol.MessageHeader;
 import com.yjy.rpc.core.protocol.RpcMessage;
+import com.yjy.rpc.server.dispatch.ReadBackpressure;
+import com.yjy.rpc.server.dispatch.RequestDispatcher;
 import com.yjy.rpc.server.handler.RpcRequestHandler;
+import com.yjy.rpc.server.handler.ServiceMethod;
+import com.yjy.rpc.server.limit.GradientLimiter;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
-import io.netty.util.ReferenceCountUtil;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 @Slf4j
 public class NettyRpcRequestHandler extends SimpleChannelInboundHandler<RpcMessage> {
 
-    private static final ThreadPoolExecutor threadPoll = new ThreadPoolExecutor(10,10,60L, TimeUnit.SECONDS,new ArrayBlockingQueue<>(1000));
+    /**
+     * 未指定分发器时使用的默认分发器，10 个线程，队列长度 1000
+     */
+    private static final class DefaultDispatcherHolder {
+        private static final RequestDispatcher INSTANCE = new RequestDispatcher(10, 1000);
+    }
+
+    /**
+     * 不需要收尾时的回调
+     */
+    private static final Runnable NOOP = () -> {
+    };
+
     //将rpcMessage转为rpcRequest交由RpcRequestHandler处理
     private final RpcRequestHandler rpcRequestHandler;
+    /**
+     * 请求分发器，按服务选择执行请求的线程
+     */
+    private final RequestDispatcher dispatcher;
+    /**
+     * 连接上客户端定义的方法：编号 -- 方法定义，只在 I/O 线程中访问，见 {@link ProtocolConstants#ATTACHMENT_METHOD_DEFINE}
+     */
+    private final Map<Integer, MethodDefinition> methodDefinitions = new HashMap<>();
+    /**
+     * 读背压，为 null 表示不开启
+     */
+    private final ReadBackpressure backpressure;
     public NettyRpcRequestHandler(){
+        this(DefaultDispatcherHolder.INSTANCE);
+    }
+
+    /**
+     * @param dispatcher 请求分发器
+     */
+    public NettyRpcRequestHandler(RequestDispatcher dispatcher) {
+        this(dispatcher, null);
+    }
+
+    /**
+     * @param dispatcher   请求分发器
+     * @param backpressure 读背压，为 null 表示不开启
+     */
+    public NettyRpcRequestHandler(RequestDispatcher dispatcher, ReadBackpressure backpressure) {
         this.rpcRequestHandler = SingletonFactory.getInstance(RpcRequestHandler.class);
+        this.dispatcher = dispatcher;
+        this.backpressure = backpressure;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        if (backpressure != null) {
+            backpressure.register(ctx.channel());
+        }
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (backpressure != null) {
+            backpressure.unregister(ctx.channel());
+        }
+        super.channelInactive(ctx);
     }
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, RpcMessage msg) throws Exception {
-        threadPoll.submit(() -> {
+        MessageHeader header = msg.getHeader();
+        MessageType type = MessageType.parseByType(header.getMessageType());
+        log.debug("The message received by the server is: {}", msg.getBody());
+        //如果收到的是心跳请求，修改响应头为response，消息体为pong，直接在 I/O 线程中响应
+        if (type == MessageType.HEARTBEAT_REQUEST) {
+            header.setAttachments(null);
+            header.setMessageType(MessageType.HEARTBEAT_RESPONSE.getType());
+            header.setMessageStatus(MessageStatus.SUCCESS.getCode());
+            RpcMessage responseRpcMessage = new RpcMessage();
+            responseRpcMessage.setHeader(header);
+            responseRpcMessage.setBody(ProtocolConstants.PONG);
+            ctx.writeAndFlush(responseRpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+            return;
+        }
+        Object body = msg.getBody();
+        if (body instanceof EncodedBody) {
+            EncodedBody encoded = (EncodedBody) body;
+            if (header.getAttachment(ProtocolConstants.ATTACHMENT_METHOD_DEFINE) == null) {
+                dispatchEncoded(ctx, header, encoded);
+                return;
+            }
+            // 方法定义必须在 I/O 线程中按顺序登记，每个连接的每个方法只有一次，直接在这里反序列化
+            body = decodeRequest(ctx, header, encoded);
+        }
+        if (!(body instanceof RpcRequest)) {
+            if (body != null) {
+                log.warn("Ignore the unexpected message type [{}].", type);
+            }
+            return;
+        }
+        // 处理 Rpc 请求信息
+        RpcRequest request = (RpcRequest) body;
+        // 收到请求时根据客户端传来的超时时间计算截止时间，排队期间就已超时的请求不再执行
+        long deadline = deadline(header);
+        // 在 I/O 线程中按顺序处理方法定义和引用，保证引用一定在定义之后
+        ServiceMethod serviceMethod = null;
+        RpcException bindError = null;
+        try {
+            serviceMethod = bindMethod(header, request);
+        } catch (RpcException e) {
+            bindError = e;
+        }
+        // 响应沿用请求的协议版本和序列号，附加信息不回传
+        header.setAttachments(null);
+        dispatch(ctx, header, request, serviceMethod, bindError, deadline);
+    }
+
+    /**
+     * 按服务的分发策略选择执行线程：I/O 线程、共享线程池、服务独占线程池或虚拟线程
+     */
+    private void dispatch(ChannelHandlerContext ctx, MessageHeader header, RpcRequest request, ServiceMethod invoker,
+                          RpcException bindError, long deadline) {
+        execute(ctx, header, request.getServiceName(),
+                done -> invoke(ctx, header, request, invoker, bindError, deadline, done));
+    }
+
+    /**
+     * 在服务的执行器中执行任务，超过服务的并发上限或线程池已满时直接返回失败响应
+     *
+     * @param task 任务，参数为请求处理完成（响应已写回）时的回调，异步服务方法在结果完成后才调用
+     * @return 任务是否被接受
+     */
+    private boolean execute(ChannelHandlerContext ctx, MessageHeader header, String serviceName,
+                            Consumer<Runnable> task) {
+        GradientLimiter limiter = serviceName == null ? null : dispatcher.limiter(serviceName);
+        Runnable done = NOOP;
+        if (limiter != null) {
+            if (!tryAcquire(ctx, header, serviceName, limiter)) {
+                return false;
+            }
+            done = limited(limiter);
+        }
+        Runnable release = done;
+        Runnable runnable = () -> {
             try {
-                RpcMessage responseRpcMessage = new RpcMessage();
-                MessageHeader header = msg.getHeader();
-                MessageType type = MessageType.parseByType(header.getMessageType());
-                log.debug("The message received by the server is: {}", msg.getBody());
-                //如果收到的是心跳请求，修改响应头为response，消息体为pong
-                if(type == MessageType.HEARTBEAT_REQUEST){
-                    header.setMessageType(MessageType.HEARTBEAT_RESPONSE.getType());
-                    header.setMessageStatus(MessageStatus.SUCCESS.getCode());
-                    responseRpcMessage.setHeader(header);
-                    responseRpcMessage.setBody(ProtocolConstants.PONG);
-                }else {// 处理 Rpc 请求信息
-                    RpcRequest request = (RpcRequest) msg.getBody();
-                    RpcResponse response = new RpcResponse();
-                    // 设置头部消息类型为rpcResponse
-                    header.setMessageType(MessageType.RESPONSE.getType());
-                    // 反射调用
+                task.accept(release);
+            } catch (RuntimeException | Error e) {
+                release.run();
+                throw e;
+            }
+        };
+        try {
+            // 开启读背压时，排队的请求过多会暂停读取，而不是继续排队直到拒绝
+            dispatcher.executor(serviceName).execute(backpressure != null
+                    ? backpressure.wrap(ctx.channel(), runnable) : runnable);
+            return true;
+        } catch (RejectedExecutionException e) {
+            if (limiter != null) {
+                limiter.cancel();
+            }
+            if (backpressure != null) {
+                backpressure.rejected();
+            }
+            // 线程池已满，直接返回失败响应，不能让异常抛到 I/O 线程
+            log.warn("The request of the service [{}] was rejected, the dispatch pool is full.", serviceName);
+            RpcResponse response = new RpcResponse();
+            response.setExceptionValue(new RpcException(String.format(
+                    "The server is busy, the request of the service [%s] was rejected.", serviceName)));
+            writeResponse(ctx, header, response, MessageStatus.FAIL);
+            return false;
+        }
+    }
+
+    /**
+     * 申请服务的并发名额，超过上限时直接返回过载响应，不再排队
+     */
+    private static boolean tryAcquire(ChannelHandlerContext ctx, MessageHeader header, String serviceName,
+                                      GradientLimiter limiter) {
+        if (limiter.tryAcquire()) {
+            return true;
+        }
+        log.debug("The request of the service [{}] was rejected, {}.", serviceName, limiter);
+        RpcResponse response = new RpcResponse();
+        response.setExceptionValue(new RpcOverloadException(String.format(
+                "The service [%s] is overloaded, the concurrency limit is %d.", serviceName, limiter.getLimit())));
+        writeResponse(ctx, header, response, MessageStatus.FAIL);
+        return false;
+    }
+
+    /**
+     * 请求处理完成时归还并发名额的回调，用从接受到完成的耗时调整上限。
+     * 异步服务方法在结果完成时才回调，名额覆盖整个异步执行过程；多次调用只归还一次
+     */
+    private static Runnable limited(GradientLimiter limiter) {
+        long start = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * 分发未反序列化的请求，反序列化在业务线程中进行。
+     * <p>
+     * 携带方法引用的请求在 I/O 线程中就能确定服务，直接交给服务的执行器；普通请求只有反序列化后才知道服务名，
+     * 先在共享线程池中反序列化，服务使用其他分发策略时再转交给对应的执行器
+     */
+    private void dispatchEncoded(ChannelHandlerContext ctx, MessageHeader header, EncodedBody body) {
+        long deadline = deadline(header);
+        String ref = header.getAttachment(ProtocolConstants.ATTACHMENT_METHOD_REF);
+        MethodDefinition definition = null;
+        RpcException bindError = null;
+        if (ref != null) {
+            definition = methodDefinitions.get(parseRef(ref));
+            if (definition == null) {
+                bindError = new RpcException(String.format("The method reference [%s] is not defined.", ref));
+            }
+        }
+        header.setAttachments(null);
+        MethodDefinition bound = definition;
+        RpcException invokeError = bindError;
+        Consumer<Runnable> task = done -> {
+            RpcRequest request = decodeRequest(ctx, header, body);
+            if (request == null) {
+                done.run();
+                return;
+            }
+            if (bound != null) {
+                bound.fill(request);
+                invoke(ctx, header, request, bound.serviceMethod, null, deadline, done);
+                return;
+            }
+            // 没有方法引用时未申请过并发名额
+            done.run();
+            if (invokeError != null || dispatcher.executor(request.getServiceName()) == dispatcher.executor(null)) {
+                // 服务使用共享线程池，已经在共享线程池中，直接调用
+                String serviceName = request.getServiceName();
+                GradientLimiter limiter = serviceName == null ? null : dispatcher.limiter(serviceName);
+                if (limiter == null) {
+                    invoke(ctx, header, request, null, invokeError, deadline, NOOP);
+                } else if (tryAcquire(ctx, header, serviceName, limiter)) {
+                    invoke(ctx, header, request, null, invokeError, deadline, limited(limiter));
+                }
+            } else {
+                dispatch(ctx, header, request, null, null, deadline);
+            }
+        };
+        if (!execute(ctx, header, definition != null ? definition.serviceName : null, task)) {
+            body.release();
+        }
+    }
+
+    /**
+     * 反序列化请求，失败时直接返回失败响应
+     *
+     * @return 请求，反序列化失败时返回 null
+     */
+    private static RpcRequest decodeRequest(ChannelHandlerContext ctx, MessageHeader header, EncodedBody body) {
+        try {
+            return body.decode(RpcRequest.class);
+        } catch (Throwable e) {
+            log.error("Deserialize the request failed, sequence id: {}.", header.getSequenceId(), e);
+            header.setAttachments(null);
+            RpcResponse response = new RpcResponse();
+            response.setExceptionValue(new RpcException("Error in deserializing the request, " + e.getMessage()));
+            writeResponse(ctx, header, response, MessageStatus.FAIL);
+            rethrowIfFatal(e);
+            return null;
+        }
+    }
+
+    /**
+     * 调用服务方法并写回响应
+     *
+     * @param done 响应写回后的回调，异步服务方法在结果完成后调用
+     */
+    private void invoke(ChannelHandlerContext ctx, MessageHeader header, RpcRequest request, ServiceMethod invoker,
+                        RpcException bindError, long deadline, Runnable done) {
+        RpcResponse response = new RpcResponse();
+        response.setRequest(request);
+        MessageStatus status;
+        Throwable failure = null;
+        // 反射调用
+        try {
+            if (deadline != 0 && System.nanoTime() - deadline > 0) {
+                throw new RpcException("The request deadline exceeded before invocation.");
+            }
+            if (bindError != null) {
+                throw bindError;
+            }
+            Object result = invoker != null ? invoker.invoke(request.getParameterValues())
+                    : rpcRequestHandler.handleRpcRequest(request);
+            if (result instanceof CompletionStage) {
+                // 异步服务方法，结果完成后再写回响应，不占用业务线程等待
+                ((CompletionStage<?>) result).whenComplete((value, error) -> {
                     try {
-                        Object result = rpcRequestHandler.handleRpcRequest(request);
-                        response.setReturnValue(request);
-                        header.setMessageStatus(MessageStatus.SUCCESS.getCode());
-                    } catch (Exception e) {
-                        log.error("The service [{}], the method [{}] invoke failed!", request.getServiceName(), request.getMethod());
-                        // 若不设置，堆栈信息过多，导致报错
-                        response.setExceptionValue(new RpcException("Error in remote procedure call, " + e.getMessage()));
-                        header.setMessageStatus(MessageStatus.FAIL.getCode());
+                        complete(ctx, header, request, response, value, error);
+                    } finally {
+                        done.run();
                     }
-                    // 设置响应头部信息
-                    responseRpcMessage.setHeader(header);
-                    responseRpcMessage.setBody(response);
-                }
-                log.debug("responseRpcMessage: {}.", responseRpcMessage);
-                // 将结果写入，传递到下一个处理器，上一个事件（线程池那个）执行完了，执行下一个事件？
-                /**
-                 * 0.ctx ：channelHandlerContext，提供了对 Channel、ChannelPipeline 和 ChannelHandler 的操作和访问
-                 * 0.1 ：channel类似一个套接字，提供了网络通信的基本操作，比如读取、写入、连接和关闭
-                 * 0.2：ChannelPipeline 是一个用于处理和拦截 Channel 传入和传出数据的处理器链
-                 * 由一系列的 ChannelHandler 组成，每个 Handler 负责处理特定的类型的事件。当数据通过 Channel 时，它会被传递到 ChannelPipeline 中，经过一系列的处理器处理，最终到达目的地
-                 * 1.writeAndFlush：写入并刷新，保证实时性，确保数据尽快到达客户端
-                 * 1.1 write 方法用于将数据写入通道的缓冲区，但它并不立即将数据发送到实际的对端
-                 * 1.2 flush 立即将数据发送出去
-                 * 2.添加一个监听器。如果写操作失败（比如发生异常），该监听器将关闭通道
-                 */
-                ctx.writeAndFlush(responseRpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
-            } finally {
-            // 确保 ByteBuf 被释放，防止发生内存泄露
-            ReferenceCountUtil.release(msg);
-            }
-        });
+                });
+                return;
+            }
+            response.setReturnValue(result);
+            status = MessageStatus.SUCCESS;
+        } catch (Throwable e) {
+            // 服务方法抛出的 Error（如 StackOverflowError、AssertionError）同样返回失败响应，调用方不必等到超时
+            if (e instanceof Error) {
+                log.error("The service [{}], the method [{}] invoke failed!", request.getServiceName(),
+                        request.getMethod(), e);
+            } else {
+                log.error("The service [{}], the method [{}] invoke failed!", request.getServiceName(),
+                        request.getMethod());
+            }
+            // 若不设置，堆栈信息过多，导致报错
+            response.setExceptionValue(new RpcException("Error in remote procedure call, " + e.getMessage()));
+            status = MessageStatus.FAIL;
+            failure = e;
+        }
+        try {
+            writeResponse(ctx, header, response, status);
+        } finally {
+            done.run();
+        }
+        if (failure != null) {
+            rethrowIfFatal(failure);
+        }
     }
+
+    /**
+     * 响应写回后继续抛出虚拟机无法继续正常运行的错误（栈溢出在抛出后已经恢复，不在此列）
+     */
+    private static void rethrowIfFatal(Throwable e) {
+        if (e instanceof VirtualMachineError && !(e instanceof StackOverflowError)) {
+            throw (VirtualMachineError) e;
+        }
+    }
+
+    /**
+     * 异步服务方法的结果完成，写回响应
+     */
+    private static void complete(ChannelHandlerContext ctx, MessageHeader header, RpcRequest request,
+                                 RpcResponse response, Object value, Throwable error) {
+        if (error == null) {
+            response.setReturnValue(value);
+            writeResponse(ctx, header, response, MessageStatus.SUCCESS);
+        } else {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            log.error("The service [{}], the method [{}] completed exceptionally!",
+                    request.getServiceName(), request.getMethod());
+            response.setExceptionValue(new RpcException("Error in remote procedure call, " + cause.getMessage()));
+            writeResponse(ctx, header, response, MessageStatus.FAIL);
+        }
+    }
+
+    private static void writeResponse(ChannelHandlerContext ctx, MessageHeader header, RpcResponse response,
+                                      MessageStatus status) {
+        // 设置头部消息类型为rpcResponse
+        header.setMessageType(MessageType.RESPONSE.getType());
+        header.setMessageStatus(status.getCode());
+        // 请求没有压缩（可能只是未达到阈值）时，响应使用服务端的默认压缩算法，否则沿用请求的压缩算法
+        if (header.getCompressType() == CompressionType.NONE.getType()) {
+            header.setCompressType(ProtocolConstants.COMPRESS_TYPE_DEFAULT);
+        }
+        // 设置响应头部信息
+        RpcMessage responseRpcMessage = new RpcMessage();
+        responseRpcMessage.setHeader(header);
+        responseRpcMessage.setBody(response);
+        log.debug("responseRpcMessage: {}.", responseRpcMessage);
+        // 将结果写入，传递到下一个处理器，上一个事件（线程池那个）执行完了，执行下一个事件？
+        /**
+         * 0.ctx ：channelHandlerContext，提供了对 Channel、ChannelPipeline 和 ChannelHandler 的操作和访问
+         * 0.1 ：channel类似一个套接字，提供了网络通信的基本操作，比如读取、写入、连接和关闭
+         * 0.2：ChannelPipeline 是一个用于处理和拦截 Channel 传入和传出数据的处理器链
+         * 由一系列的 ChannelHandler 组成，每个 Handler 负责处理特定的类型的事件。当数据通过 Channel 时，它会被传递到 ChannelPipeline 中，经过一系列的处理器处理，最终到达目的地
+         * 1.writeAndFlush：写入并刷新，保证实时性，确保数据尽快到达客户端
+         * 1.1 write 方法用于将数据写入通道的缓冲区，但它并不立即将数据发送到实际的对端
+         * 1.2 flush 立即将数据发送出去
+         * 2.添加一个监听器。如果写操作失败（比如发生异常），该监听器将关闭通道
+         */
+        ctx.writeAndFlush(responseRpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+    }
+
+    /**
+     * 处理请求携带的方法定义或方法引用
+     *
+     * @return 已解析的服务方法，普通请求或解析失败时返回 null，由 {@link RpcRequestHandler} 按请求内容查找
+     * @throws RpcException 引用了未定义的方法
+     */
+    private ServiceMethod bindMethod(MessageHeader header, RpcRequest request) {
+        String ref = header.getAttachment(ProtocolConstants.ATTACHMENT_METHOD_REF);
+        if (ref != null) {
+            MethodDefinition definition = methodDefinitions.get(parseRef(ref));
+            if (definition == null) {
+                throw new RpcException(String.format("The method reference [%s] is not defined.", ref));
+            }
+            // 补全请求，便于日志和异常信息输出
+            definition.fill(request);
+            return definition.serviceMethod;
+        }
+        String define = header.getAttachment(ProtocolConstants.ATTACHMENT_METHOD_DEFINE);
+        if (define == null || methodDefinitions.size() >= ProtocolConstants.MAX_METHOD_DEFINITIONS) {
+            return null;
+        }
+        Integer id = parseRef(define);
+        if (id == null) {
+            // 非法的编号不登记，按普通请求处理
+            log.warn("Ignore the invalid method definition attachment [{}].", define);
+            return null;
+        }
+        ServiceMethod serviceMethod = null;
+        try {
+            serviceMethod = rpcRequestHandler.resolve(request.getServiceName(), request.getMethod(),
+                    request.getParameterTypes());
+        } catch (Exception e) {
+            // 服务或方法不存在时只记录名称，调用时按普通请求处理并返回错误信息
+            log.debug("Resolve the method [{}#{}] failed.", request.getServiceName(), request.getMethod());
+        }
+        methodDefinitions.put(id, new MethodDefinition(request.getServiceName(),
+                request.getMethod(), request.getParameterTypes(), serviceMethod));
+        return serviceMethod;
+    }
+
+    /**
+     * 解析方法编号，非法的编号返回 null，方法引用按未定义处理，方法定义按普通请求处理
+     */
+    private static Integer parseRef(String ref) {
+        try {
+            return Integer.valueOf(ref);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 根据附加信息中的超时时间（毫秒）计算请求的截止时间
+     *
+     * @return {@link System#nanoTime()} 时间线上的截止时间，没有超时时间时返回 0
+     */
+    private static long deadline(MessageHeader header) {
+        String timeout = header.getAttachment(ProtocolConstants.ATTACHMENT_TIMEOUT);
+        if (timeout == null) {
+            return 0;
+        }
+        try {
+            long millis = Long.parseLong(timeout);
+            if (millis <= 0) {
+                return 0;
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+            return deadline == 0 ? 1 : deadline;
+        } catch (NumberFormatException e) {
+            log.warn("Ignore the invalid timeout attachment [{}].", timeout);
+            return 0;
+        }
+    }
+
     /**
      * 用户自定义事件，当触发读空闲时，自动关闭【客户端channel】连接
      *userEventTriggered 方法是 ChannelHandler 接口的一个回调方法，
@@ -104,6 +511,39 @@ public class NettyRpcRequestHandler extends SimpleChannelInboundHandler<RpcMessa
         }
     }
 
+    /**
+     * 客户端定义的方法
+     */
+    private static final class MethodDefinition {
+
+        private final String serviceName;
+
+        private final String method;
+
+        private final Class<?>[] parameterTypes;
+
+        /**
+         * 已解析的服务方法，服务或方法不存在时为 null
+         */
+        private final ServiceMethod serviceMethod;
+
+        MethodDefinition(String serviceName, String method, Class<?>[] parameterTypes, ServiceMethod serviceMethod) {
+            this.serviceName = serviceName;
+            this.method = method;
+            this.parameterTypes = parameterTypes;
+            this.serviceMethod = serviceMethod;
+        }
+
+        /**
+         * 用方法定义补全只携带参数的请求
+         */
+        void fill(RpcRequest request) {
+            request.setServiceName(serviceName);
+            request.setMethod(method);
+            request.setParameterTypes(parameterTypes);
+        }
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         log.error("server catch exception");
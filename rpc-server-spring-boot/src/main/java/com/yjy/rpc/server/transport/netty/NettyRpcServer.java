@@ -1,24 +1,31 @@
 package com.yjy.rpc.server.transport.netty;
 
+import com.yjy.rpc.core.codec.CodecOptions;
 import com.yjy.rpc.core.codec.RpcFrameDecoder;
 import com.yjy.rpc.core.codec.SharableRpcMessageCodec;
+import com.yjy.rpc.core.protocol.enums.CompressionType;
+import com.yjy.rpc.core.transport.FlushCoalescingHandler;
+import com.yjy.rpc.core.transport.FlushMetrics;
+import com.yjy.rpc.core.transport.NettyTransport;
+import com.yjy.rpc.server.config.RpcServerProperties;
+import com.yjy.rpc.server.dispatch.ReadBackpressure;
+import com.yjy.rpc.server.dispatch.RequestDispatcher;
 import com.yjy.rpc.server.transport.RpcServer;
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.channel.ChannelFuture;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.logging.LogLevel;
-import io.netty.handler.logging.LoggingHandler;
+import io.netty.handler.flow.FlowControlHandler;
 import io.netty.handler.timeout.IdleStateHandler;
-import jdk.nashorn.internal.runtime.regexp.JoniRegExp;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -28,25 +35,166 @@ import java.util.concurrent.TimeUnit;
  */
 @Slf4j
 public class NettyRpcServer implements RpcServer {
+
+    /**
+     * 编解码参数
+     */
+    private final CodecOptions codecOptions;
+
+    /**
+     * 合并刷新的等待窗口，单位微秒，小于 0 表示不合并刷新
+     */
+    private final int flushWindowMicros;
+
+    /**
+     * 合并刷新的统计信息
+     */
+    private final FlushMetrics flushMetrics = new FlushMetrics();
+
+    /**
+     * I/O 实现，epoll 或 NIO
+     */
+    private final NettyTransport transport;
+
+    /**
+     * boss 线程数，0 表示使用 Netty 的默认值
+     */
+    private final int bossThreads;
+
+    /**
+     * worker 线程数，0 表示使用 Netty 的默认值
+     */
+    private final int workerThreads;
+
+    /**
+     * 绑定的本地地址，为 null 时使用 {@link InetAddress#getLocalHost()}
+     */
+    private final String bindAddress;
+
+    /**
+     * 已完成三次握手、等待 accept 的连接队列长度
+     */
+    private final int backlog;
+
+    /**
+     * 使用 SO_REUSEPORT 在同一端口上绑定的 server channel 数量，只在 epoll 下生效
+     */
+    private final int acceptors;
+
+    /**
+     * 共享线程池的线程数
+     */
+    private final int dispatchThreads;
+
+    /**
+     * 共享线程池的队列长度
+     */
+    private final int dispatchQueueSize;
+
+    /**
+     * 读背压，为 null 表示不开启
+     */
+    private final ReadBackpressure backpressure;
+
+    /**
+     * 是否为所有服务开启自适应限流
+     */
+    private final boolean adaptiveLimit;
+
+    /**
+     * 自适应限流的初始并发上限、最大并发上限
+     */
+    private final int initialConcurrencyLimit;
+
+    private final int maxConcurrencyLimit;
+
+    public NettyRpcServer() {
+        this.codecOptions = CodecOptions.builder().build();
+        this.flushWindowMicros = -1;
+        this.transport = NettyTransport.select(true);
+        this.bossThreads = 1;
+        this.workerThreads = 0;
+        this.bindAddress = null;
+        this.backlog = 128;
+        this.acceptors = 1;
+        this.dispatchThreads = 10;
+        this.dispatchQueueSize = 1000;
+        this.backpressure = null;
+        this.adaptiveLimit = false;
+        this.initialConcurrencyLimit = 20;
+        this.maxConcurrencyLimit = 200;
+    }
+
+    public NettyRpcServer(RpcServerProperties properties) {
+        this.codecOptions = CodecOptions.builder()
+                .maxFrameLength(properties.getMaxFrameLength())
+                .maxMessageLength(properties.getMaxMessageLength())
+                .chunkSize(properties.getChunkSize())
+                .compressType(CompressionType.parseByName(properties.getCompression()))
+                .compressThreshold(properties.getCompressThreshold())
+                .lazyRequestBody(Boolean.TRUE.equals(properties.getLazyDecoding()))
+                .build();
+        this.flushWindowMicros = Boolean.TRUE.equals(properties.getFlushConsolidation())
+                ? properties.getFlushWindowMicros() : -1;
+        this.transport = NettyTransport.select(Boolean.TRUE.equals(properties.getNativeTransport()));
+        this.bossThreads = properties.getBossThreads();
+        this.workerThreads = properties.getWorkerThreads();
+        this.bindAddress = properties.getBindAddress();
+        this.backlog = properties.getBacklog();
+        if (properties.getAcceptors() > 1 && transport != NettyTransport.EPOLL) {
+            log.warn("SO_REUSEPORT requires the native epoll transport, only one acceptor will be bound.");
+            this.acceptors = 1;
+        } else {
+            this.acceptors = Math.max(1, properties.getAcceptors());
+        }
+        this.dispatchThreads = properties.getDispatchThreads();
+        this.dispatchQueueSize = properties.getDispatchQueueSize();
+        int highWaterMark = properties.getDispatchHighWaterMark();
+        int lowWaterMark = properties.getDispatchLowWaterMark() > 0 ? properties.getDispatchLowWaterMark()
+                : highWaterMark >>> 1;
+        this.backpressure = highWaterMark > 0 ? new ReadBackpressure(highWaterMark, lowWaterMark,
+                Boolean.TRUE.equals(properties.getPauseAllChannels())) : null;
+        this.adaptiveLimit = Boolean.TRUE.equals(properties.getAdaptiveLimit());
+        this.initialConcurrencyLimit = properties.getInitialConcurrencyLimit();
+        this.maxConcurrencyLimit = properties.getMaxConcurrencyLimit();
+    }
+
+    /**
+     * 获取合并刷新的统计信息，未开启合并刷新时没有数据
+     */
+    public FlushMetrics getFlushMetrics() {
+        return flushMetrics;
+    }
+
+    /**
+     * 获取读背压的统计信息，未开启读背压时返回 null
+     */
+    public ReadBackpressure getBackpressure() {
+        return backpressure;
+    }
+
     @Override
     public void start(Integer port) {
         //用于处理事件循环的线程池, boss 处理 accept 事件,parent
-        EventLoopGroup boss = new NioEventLoopGroup();
+        // 每个 server channel 至少对应一个 boss 线程，多个 acceptor 才能并行 accept
+        EventLoopGroup boss = transport.newEventLoopGroup(Math.max(bossThreads, acceptors), "rpc-server-boss");
         // worker 处理 read/write 事件,child
-        EventLoopGroup worker = new NioEventLoopGroup();
+        EventLoopGroup worker = transport.newEventLoopGroup(workerThreads, "rpc-server-worker");
+        // 执行服务方法的线程池，按服务的分发策略选择
+        RequestDispatcher dispatcher = new RequestDispatcher(dispatchThreads, dispatchQueueSize, adaptiveLimit,
+                initialConcurrencyLimit, maxConcurrencyLimit);
         try {
-            InetAddress inetAddress = InetAddress.getLocalHost();
+            InetAddress inetAddress = bindAddress == null ? InetAddress.getLocalHost() : InetAddress.getByName(bindAddress);
             //Netty 的引导类，用于设置服务器的启动参数,strap:带子
             ServerBootstrap serverBootstrap = new ServerBootstrap();
             serverBootstrap.group(boss,worker)
-                    .channel(NioServerSocketChannel.class)
+                    .channel(transport.serverChannelClass())
                     // TCP默认开启了 Nagle 算法，该算法的作用是尽可能的发送大数据快，减少网络传输。TCP_NODELAY 参数的作用就是控制是否启用 Nagle 算法。
                     .childOption(ChannelOption.TCP_NODELAY, true)
                     // 是否开启 TCP 底层心跳机制
                     .childOption(ChannelOption.SO_KEEPALIVE, true)
                     // 表示系统用于临时存放已完成三次握手的请求的队列的最大长度,如果连接建立频繁，服务器处理创建新连接较慢，可以适当调大这个参数
-                    .option(ChannelOption.SO_BACKLOG, 128)
-                    .handler(new LoggingHandler(LogLevel.DEBUG))
+                    .option(ChannelOption.SO_BACKLOG, backlog)
                     //使用 ChannelInitializer 来初始化新的连接。对于每个新的连接，会添加一些处理器到连接的 ChannelPipeline
                     //IdleStateHandler：用于处理空闲状态的事件，当连接超过30秒没有收到客户端请求时，会触发 IdleState#READER_IDLE 事件。
                     //RpcFrameDecoder：自定义的 RPC 消息帧解码器。
@@ -57,21 +205,40 @@ public class NettyRpcServer implements RpcServer {
                         protected void initChannel(SocketChannel ch) throws Exception {
                             // 30s内没有收到客户端的请求就关闭连接，会触发一个 IdleState#READER_IDLE 事件
                             ch.pipeline().addLast(new IdleStateHandler(30, 0, 0, TimeUnit.SECONDS));
-                            ch.pipeline().addLast(new RpcFrameDecoder());
-                            ch.pipeline().addLast(new SharableRpcMessageCodec());
-                            ch.pipeline().addLast(new NettyRpcRequestHandler());
+                            ch.pipeline().addLast(new RpcFrameDecoder(codecOptions));
+                            if (backpressure != null) {
+                                // 暂停读取后，同一次读取中已经拆出的帧暂存在这里，恢复读取后再解码分发
+                                ch.pipeline().addLast(new FlowControlHandler());
+                            }
+                            ch.pipeline().addLast(new SharableRpcMessageCodec(codecOptions));
+                            if (flushWindowMicros >= 0) {
+                                // 合并同一轮事件循环中响应的 flush
+                                ch.pipeline().addLast(new FlushCoalescingHandler(flushWindowMicros, flushMetrics));
+                            }
+                            ch.pipeline().addLast(new NettyRpcRequestHandler(dispatcher, backpressure));
                         }
                     });
+            if (acceptors > 1) {
+                // 多个 server channel 绑定同一端口，由内核把新连接分散到各个 acceptor 上
+                serverBootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+            }
             // 绑定netty端口，同步等待绑定成功
-            ChannelFuture channelFuture = serverBootstrap.bind(inetAddress, port).sync();
-            log.debug("Rpc server add {} started on the port {}.", inetAddress, port);
+            List<Channel> serverChannels = new ArrayList<>(acceptors);
+            for (int i = 0; i < acceptors; i++) {
+                serverChannels.add(serverBootstrap.bind(inetAddress, port).sync().channel());
+            }
+            log.debug("Rpc server add {} started on the port {}, transport: {}, acceptors: {}.", inetAddress, port,
+                    transport, acceptors);
             // 等待服务端监听端口关闭
-            channelFuture.channel().closeFuture().sync();
+            for (Channel serverChannel : serverChannels) {
+                serverChannel.closeFuture().sync();
+            }
         }catch  (UnknownHostException | InterruptedException e) {
             log.error("An error occurred while starting the rpc service.", e);
         } finally {
             boss.shutdownGracefully();
             worker.shutdownGracefully();
+            dispatcher.shutdown();
         }
     }
 }